@@ -0,0 +1,26 @@
+package bguspl.set;
+
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Creates quiet game environments for the benchmarks (headless user interface, no logging, no table delays).
+ */
+public class BenchmarkEnv {
+
+    public static Env create(Properties properties) {
+        Logger logger = Logger.getLogger("SetGameBenchmark");
+        logger.setUseParentHandlers(false);
+        properties.putIfAbsent("TableDelaySeconds", "0");
+        properties.putIfAbsent("HumanPlayers", "0");
+        properties.putIfAbsent("Hints", "False");
+        Config config = new Config(logger, properties);
+        logger.setLevel(Level.OFF);
+        return new Env(logger, config, new UserInterfaceHeadless(), new UtilImpl(config));
+    }
+
+    public static Env create() {
+        return create(new Properties());
+    }
+}
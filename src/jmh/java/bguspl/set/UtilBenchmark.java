@@ -0,0 +1,85 @@
+package bguspl.set;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Benchmarks of the set checking and set finding utilities, across deck configurations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UtilBenchmark {
+
+    @Param({"3", "4"})
+    public int featureSize;
+
+    @Param({"3", "4"})
+    public int featureCount;
+
+    /**
+     * The number of cards handed to findSets (capped by the deck size).
+     */
+    @Param({"12", "81"})
+    public int cards;
+
+    private Util util;
+    private List<Integer> deck;
+    private int[][] candidates;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Properties properties = new Properties();
+        properties.put("FeatureSize", Integer.toString(featureSize));
+        properties.put("FeatureCount", Integer.toString(featureCount));
+        Env env = BenchmarkEnv.create(properties);
+        util = env.util;
+
+        Random random = new Random(42);
+        List<Integer> all = IntStream.range(0, env.config.deckSize).boxed().collect(Collectors.toList());
+        Collections.shuffle(all, random);
+        deck = all.subList(0, Math.min(cards, all.size()));
+
+        candidates = new int[1024][];
+        for (int i = 0; i < candidates.length; ++i)
+            candidates[i] = random.ints(0, env.config.deckSize).distinct().limit(featureSize).toArray();
+    }
+
+    @Benchmark
+    public boolean testSet() {
+        next = (next + 1) & (candidates.length - 1);
+        return util.testSet(candidates[next]);
+    }
+
+    @Benchmark
+    public List<int[]> findFirstSet() {
+        return util.findSets(deck, 1);
+    }
+
+    @Benchmark
+    public List<int[]> findAllSets() {
+        return util.findSets(deck, Integer.MAX_VALUE);
+    }
+}
@@ -0,0 +1,115 @@
+package bguspl.set.ex;
+
+import bguspl.set.BenchmarkEnv;
+import bguspl.set.Env;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Benchmarks of the dealer's claim path (TableDelaySeconds=0): each benchmark thread is a player with tokens on the
+ * same three cards of a dealt table (which are not a set), that submits a claim of them and waits until a background
+ * dealer thread has checked it (checkClaim: the version check, the set test and the penalty), so the score is the
+ * claim throughput of the dealer. The claims are never sets, so the table does not change.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(DealerBenchmark.PLAYERS)
+public class DealerBenchmark {
+
+    static final int PLAYERS = 8;
+
+    @State(Scope.Benchmark)
+    public static class DealerState {
+        Dealer dealer;
+        Table table;
+        AtomicIntegerArray verdicts;
+
+        /**
+         * Three slots of the table whose cards are not a set.
+         */
+        int[] slots;
+
+        final AtomicInteger nextPlayer = new AtomicInteger();
+        private Thread dealerThread;
+        private volatile boolean terminate;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            Properties properties = new Properties();
+            properties.put("ComputerPlayers", Integer.toString(PLAYERS));
+            Env env = BenchmarkEnv.create(properties);
+            table = new Table(env);
+            Player[] players = new Player[env.config.players];
+            dealer = new Dealer(env, table, players, 1);
+            for (int i = 0; i < players.length; ++i)
+                players[i] = new Player(env, dealer, table, i, false);
+            verdicts = new AtomicIntegerArray(players.length);
+            dealer.dealRound();
+            slots = findNonSet(env, table);
+
+            dealerThread = new Thread(() -> {
+                while (!terminate) {
+                    for (int claim = dealer.nextClaim(); claim >= 0; claim = dealer.nextClaim()) {
+                        dealer.checkClaim(claim);
+                        verdicts.set(claim, 1);
+                    }
+                }
+            }, "dealer");
+            dealerThread.start();
+        }
+
+        private static int[] findNonSet(Env env, Table table) {
+            for (int i = 0; i < env.config.tableSize; ++i)
+                for (int j = i + 1; j < env.config.tableSize; ++j)
+                    for (int k = j + 1; k < env.config.tableSize; ++k)
+                        if (!env.util.testSet(new int[]{table.slotToCard[i], table.slotToCard[j], table.slotToCard[k]}))
+                            return new int[]{i, j, k};
+            throw new IllegalStateException("every three cards on the table are a set");
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws InterruptedException {
+            terminate = true;
+            dealerThread.join();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class PlayerState {
+        int player;
+
+        @Setup(Level.Trial)
+        public void setUp(DealerState state) {
+            player = state.nextPlayer.getAndIncrement() % PLAYERS;
+            for (int slot : state.slots)
+                state.table.placeToken(player, slot);
+        }
+    }
+
+    @Benchmark
+    public void claim(DealerState state, PlayerState player) {
+        state.verdicts.set(player.player, 0);
+        state.dealer.addClaimSet(player.player);
+        while (state.verdicts.get(player.player) == 0)
+            Thread.yield();
+    }
+}
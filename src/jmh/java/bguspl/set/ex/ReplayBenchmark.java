@@ -0,0 +1,68 @@
+package bguspl.set.ex;
+
+import bguspl.set.BenchmarkEnv;
+import bguspl.set.Env;
+import bguspl.set.JournalWriter;
+import bguspl.set.VirtualClock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the table and dealer operations on real game traffic: a game of computer players is recorded once,
+ * and each benchmark operation replays the whole journaled game on a single thread.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReplayBenchmark {
+
+    private Env env;
+    private byte[] journal;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, InterruptedException {
+        Properties properties = new Properties();
+        properties.put("Simulation", "True");
+        properties.put("ComputerPlayers", "4");
+        properties.put("TurnTimeoutWarningSeconds", "5");
+        env = BenchmarkEnv.create(properties);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        VirtualClock clock = new VirtualClock(env.config.simulationSpeedup);
+        JournalWriter writer = new JournalWriter(bytes, env.config, clock);
+        Env recordEnv = new Env(env.logger, env.config, env.ui, env.util, clock, writer);
+        Table table = new Table(recordEnv);
+        Player[] players = new Player[env.config.players];
+        Dealer dealer = new Dealer(recordEnv, table, players);
+        for (int i = 0; i < players.length; ++i)
+            players[i] = new Player(recordEnv, dealer, table, i, false);
+        Thread dealerThread = new Thread(dealer, "dealer");
+        dealerThread.start();
+        dealerThread.join();
+        writer.close();
+        journal = bytes.toByteArray();
+    }
+
+    @Benchmark
+    public int[] replayGame() throws IOException {
+        return new GameReplay(env, new ByteArrayInputStream(journal)).run();
+    }
+}
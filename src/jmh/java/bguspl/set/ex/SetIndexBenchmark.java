@@ -0,0 +1,74 @@
+package bguspl.set.ex;
+
+import bguspl.set.BenchmarkEnv;
+import bguspl.set.Env;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Compares keeping the number of sets among the cards up to date as cards come and go (SetIndex) with counting
+ * the sets from scratch, for the standard deck and a larger custom deck (FeatureCount=6, 729 cards).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SetIndexBenchmark {
+
+    @Param({"4", "6"})
+    public int featureCount;
+
+    private Env env;
+    private SetIndex index;
+    private List<Integer> deck;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Properties properties = new Properties();
+        properties.put("FeatureCount", Integer.toString(featureCount));
+        env = BenchmarkEnv.create(properties);
+        deck = IntStream.range(0, env.config.deckSize).boxed().collect(Collectors.toList());
+        index = new SetIndex(env);
+        for (int card : deck)
+            index.add(card);
+    }
+
+    /**
+     * Takes a card out and puts it back, and counts the sets after each change.
+     */
+    @Benchmark
+    public long updateAndCount() {
+        next = (next + 1) % env.config.deckSize;
+        index.remove(next);
+        long without = index.countSets();
+        index.add(next);
+        return without + index.countSets();
+    }
+
+    /**
+     * Counts the sets from scratch.
+     */
+    @Benchmark
+    public int rescan() {
+        return env.util.findSets(deck, Integer.MAX_VALUE).size();
+    }
+}
@@ -0,0 +1,70 @@
+package bguspl.set.ex;
+
+import bguspl.set.BenchmarkEnv;
+import bguspl.set.Env;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Benchmarks of token placement and removal by several player threads contending on the same table.
+ * Run with -t to change the number of player threads (one player per thread).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class TableBenchmark {
+
+    private static final int MAX_PLAYERS = 64;
+
+    @State(Scope.Benchmark)
+    public static class TableState {
+        Env env;
+        Table table;
+        final AtomicInteger nextPlayer = new AtomicInteger();
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            Properties properties = new Properties();
+            properties.put("ComputerPlayers", Integer.toString(MAX_PLAYERS));
+            env = BenchmarkEnv.create(properties);
+            table = new Table(env);
+            for (int slot = 0; slot < env.config.tableSize; ++slot)
+                table.placeCard(slot, slot);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class PlayerState {
+        int player;
+
+        @Setup(Level.Trial)
+        public void setUp(TableState state) {
+            player = state.nextPlayer.getAndIncrement() % MAX_PLAYERS;
+        }
+    }
+
+    @Benchmark
+    public boolean placeAndRemoveToken(TableState state, PlayerState player) {
+        int slot = ThreadLocalRandom.current().nextInt(state.env.config.tableSize);
+        state.table.placeToken(player.player, slot);
+        return state.table.removeToken(player.player, slot);
+    }
+}
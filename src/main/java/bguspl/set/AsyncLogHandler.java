@@ -0,0 +1,146 @@
+package bguspl.set;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.ErrorManager;
+import java.util.logging.Formatter;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * A log handler that never blocks the logging threads on I/O: records are put in a bounded buffer and written
+ * to the target handler in batches by a single background writer thread, which flushes the target once per batch.
+ * If the buffer is full, new records are dropped (and counted); the writer reports the number of dropped records
+ * in the log once there is room again.
+ */
+public class AsyncLogHandler extends Handler {
+
+    /**
+     * The default number of records the buffer can hold.
+     */
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    /**
+     * The maximum number of records written between flushes of the target.
+     */
+    private static final int MAX_BATCH = 1024;
+
+    private final Handler target;
+    private final BlockingQueue<LogRecord> buffer;
+    private final Thread writer;
+
+    /**
+     * The number of records accepted into the buffer, written to the target and dropped (respectively).
+     */
+    private final AtomicLong accepted = new AtomicLong();
+    private long written;
+    private final AtomicLong dropped = new AtomicLong();
+
+    private volatile boolean closed;
+
+    /**
+     * @param target   - the handler records are written to (should not flush on every record).
+     * @param capacity - the number of records the buffer can hold.
+     */
+    public AsyncLogHandler(Handler target, int capacity) {
+        this.target = target;
+        buffer = new ArrayBlockingQueue<>(capacity);
+        writer = new Thread(this::writeLoop, "log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public AsyncLogHandler(Handler target) {
+        this(target, DEFAULT_CAPACITY);
+    }
+
+    @Override
+    public void publish(LogRecord record) {
+        if (closed || !isLoggable(record)) return;
+        if (buffer.offer(record))
+            accepted.incrementAndGet();
+        else
+            dropped.incrementAndGet();
+    }
+
+    private void writeLoop() {
+        List<LogRecord> batch = new ArrayList<>(MAX_BATCH);
+        while (!closed || !buffer.isEmpty()) {
+            try {
+                batch.add(buffer.take());
+            } catch (InterruptedException e) {
+                continue; // closing, write what is left
+            }
+            buffer.drainTo(batch, MAX_BATCH - 1);
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    private void write(List<LogRecord> batch) {
+        long lost = dropped.getAndSet(0);
+        if (lost > 0)
+            target.publish(new LogRecord(Level.WARNING, "log buffer was full: " + lost + " log records were dropped"));
+        for (LogRecord record : batch)
+            target.publish(record);
+        target.flush();
+        synchronized (this) {
+            written += batch.size();
+            notifyAll();
+        }
+    }
+
+    /**
+     * Blocks until all the records published before the call are written, then flushes the target.
+     */
+    @Override
+    public void flush() {
+        long target = accepted.get();
+        synchronized (this) {
+            try {
+                while (written < target && writer.isAlive())
+                    wait(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        this.target.flush();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        writer.interrupt();
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        target.close();
+    }
+
+    /**
+     * Sets the level of this handler and of the target (which would otherwise drop the records below its own level).
+     */
+    @Override
+    public synchronized void setLevel(Level newLevel) {
+        super.setLevel(newLevel);
+        target.setLevel(newLevel);
+    }
+
+    @Override
+    public synchronized void setFormatter(Formatter newFormatter) {
+        super.setFormatter(newFormatter);
+        target.setFormatter(newFormatter);
+    }
+
+    @Override
+    public synchronized void setErrorManager(ErrorManager em) {
+        super.setErrorManager(em);
+        target.setErrorManager(em);
+    }
+}
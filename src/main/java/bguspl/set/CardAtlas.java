@@ -0,0 +1,234 @@
+package bguspl.set;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+
+/**
+ * All the card images (and the empty card image) of a deck, scaled to the cell size, in one image.
+ * The atlas is built in the background: read from the disk cache (./cache/) if it is there, and otherwise decoded from
+ * the card resources in parallel, scaled, and saved to the cache. Drawing a card copies its region of the atlas.
+ * Atlases are shared by all the windows with the same deck and cell size.
+ * The cache file is named after a hash of the card resources, so an atlas of older images is never read, and an atlas
+ * with placeholders for missing images is never saved.
+ */
+public class CardAtlas {
+
+    private static final File CACHE_DIRECTORY = new File("./cache/");
+
+    private static final Map<String, CardAtlas> atlases = new ConcurrentHashMap<>();
+
+    private final Logger logger;
+    private final Config config;
+    private final String key;
+    private final File cacheDirectory;
+
+    /**
+     * The number of cards (including the empty card, the last one) and of atlas columns.
+     */
+    private final int cards;
+    private final int columns;
+
+    private final CompletableFuture<BufferedImage> image;
+
+    /**
+     * Completed when the atlas was saved to the cache (if it was built).
+     */
+    private volatile CompletableFuture<Void> saved = CompletableFuture.completedFuture(null);
+
+    /**
+     * @return - the atlas of the deck and cell size of the configuration (building it in the background, if needed).
+     */
+    public static CardAtlas of(Logger logger, Config config) {
+        String key = "cards-" + config.featureSize + "x" + config.featureCount + "-" + config.cellWidth + "x" + config.cellHeight;
+        return atlases.computeIfAbsent(key, k -> new CardAtlas(logger, config, k, CACHE_DIRECTORY));
+    }
+
+    CardAtlas(Logger logger, Config config, String key, File cacheDirectory) {
+        this.logger = logger;
+        this.config = config;
+        this.key = key;
+        this.cacheDirectory = cacheDirectory;
+        cards = config.deckSize + 1;
+        columns = (int) Math.ceil(Math.sqrt(cards));
+        image = CompletableFuture.supplyAsync(this::load);
+    }
+
+    /**
+     * Calls a task (on some thread) once the atlas is ready.
+     */
+    public void whenReady(Runnable task) {
+        image.thenRun(task);
+    }
+
+    /**
+     * Waits until the atlas is ready.
+     */
+    BufferedImage await() {
+        return image.join();
+    }
+
+    /**
+     * Waits until the atlas is ready and saved to the cache.
+     */
+    void awaitSaved() {
+        image.join();
+        saved.join();
+    }
+
+    /**
+     * Draws a card (or the empty card, if card is -1) at the given position.
+     *
+     * @return - false if the atlas is not ready yet (nothing is drawn).
+     */
+    public boolean draw(Graphics g, int card, int x, int y) {
+        BufferedImage atlas = image.getNow(null);
+        if (atlas == null)
+            return false;
+        int index = card < 0 ? cards - 1 : card;
+        int sx = (index % columns) * config.cellWidth;
+        int sy = (index / columns) * config.cellHeight;
+        return g.drawImage(atlas, x, y, x + config.cellWidth, y + config.cellHeight,
+                sx, sy, sx + config.cellWidth, sy + config.cellHeight, null);
+    }
+
+    private BufferedImage load() {
+        long start = System.nanoTime();
+        byte[][] resources = IntStream.range(0, cards).parallel().mapToObj(this::readCardResource).toArray(byte[][]::new);
+        File cache = new File(cacheDirectory, key + "-" + contentHash(resources) + ".png");
+        if (cache.isFile()) try {
+            BufferedImage atlas = ImageIO.read(cache);
+            if (atlas != null && atlas.getWidth() == columns * config.cellWidth && atlas.getHeight() == rows() * config.cellHeight) {
+                logger.info(String.format("card atlas %s read from the cache in %.1f ms.", key, (System.nanoTime() - start) / 1e6));
+                return atlas;
+            }
+        } catch (IOException e) {
+            logger.warning("cannot read the card atlas cache " + cache + ": " + e.getMessage());
+        }
+
+        // decoding the images is most of the work, so it is done in parallel
+        BufferedImage[] images = IntStream.range(0, cards).parallel()
+                .mapToObj(index -> decodeCardImage(index, resources[index])).toArray(BufferedImage[]::new);
+        BufferedImage atlas = new BufferedImage(columns * config.cellWidth, rows() * config.cellHeight, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = atlas.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            for (int index = 0; index < cards; index++)
+                drawCardImage(g, index, images[index], (index % columns) * config.cellWidth, (index / columns) * config.cellHeight);
+        } finally {
+            g.dispose();
+        }
+        logger.info(String.format("card atlas %s built in %.1f ms.", key, (System.nanoTime() - start) / 1e6));
+        // a placeholder is drawn for each card without an image, and it should not outlive the missing image
+        if (Arrays.asList(images).contains(null))
+            logger.info("card atlas " + key + " has cards without images, not saving it to the cache.");
+        else
+            // encoding the atlas takes about as long as building it, and the game does not need to wait for it
+            saved = CompletableFuture.runAsync(() -> save(atlas, cache));
+        return atlas;
+    }
+
+    private void save(BufferedImage atlas, File cache) {
+        Path temporary = null;
+        try {
+            Files.createDirectories(cacheDirectory.toPath());
+            // another game may be saving the same atlas: each writes its own file, and the last one replaces the other
+            temporary = Files.createTempFile(cacheDirectory.toPath(), key, ".tmp");
+            if (ImageIO.write(atlas, "png", temporary.toFile()))
+                Files.move(temporary, cache.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            else
+                logger.warning("cannot save the card atlas cache " + cache + ": no png writer.");
+        } catch (IOException e) {
+            logger.warning("cannot save the card atlas cache " + cache + ": " + e.getMessage());
+        } finally {
+            if (temporary != null) try {
+                Files.deleteIfExists(temporary);
+            } catch (IOException ignored) {}
+        }
+    }
+
+    /**
+     * @return - a hash of the contents of the card resources (missing ones included).
+     */
+    private static String contentHash(byte[][] resources) {
+        CRC32 crc = new CRC32();
+        for (byte[] resource : resources) {
+            int length = resource == null ? -1 : resource.length;
+            for (int shift = 24; shift >= 0; shift -= 8)
+                crc.update(length >>> shift);
+            if (resource != null)
+                crc.update(resource);
+        }
+        return String.format("%08x", crc.getValue());
+    }
+
+    private int rows() {
+        return (cards + columns - 1) / columns;
+    }
+
+    private String name(int index) {
+        return index == cards - 1 ? "empty_card" : UserInterfaceSwing.intInBaseToPaddedString(index, config.featureCount, config.featureSize);
+    }
+
+    /**
+     * @return - the encoded image of a card (null if there is none).
+     */
+    private byte[] readCardResource(int index) {
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream("cards/" + name(index) + ".png")) {
+            return in == null ? null : in.readAllBytes();
+        } catch (IOException e) {
+            logger.warning("cannot read the image of card " + name(index) + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return - the image of a card (null if there is none, or it cannot be decoded).
+     */
+    private BufferedImage decodeCardImage(int index, byte[] resource) {
+        if (resource == null)
+            return null;
+        try {
+            return ImageIO.read(new ByteArrayInputStream(resource));
+        } catch (IOException e) {
+            logger.warning("cannot decode the image of card " + name(index) + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Draws a card image scaled to the cell size (or a plain card with the card's features, if it has no image).
+     */
+    private void drawCardImage(Graphics2D g, int index, BufferedImage card, int x, int y) {
+        if (card != null) {
+            g.drawImage(card, x, y, config.cellWidth, config.cellHeight, null);
+            return;
+        }
+        g.setColor(Color.WHITE);
+        g.fillRoundRect(x + 2, y + 2, config.cellWidth - 4, config.cellHeight - 4, 16, 16);
+        g.setColor(Color.BLACK);
+        g.drawRoundRect(x + 2, y + 2, config.cellWidth - 4, config.cellHeight - 4, 16, 16);
+        if (index != cards - 1) {
+            g.setFont(new Font("Serif", Font.BOLD, config.fontSize));
+            g.drawString(name(index), x + config.cellWidth / 3, y + config.cellHeight / 2);
+        }
+    }
+}
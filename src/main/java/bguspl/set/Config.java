@@ -56,6 +56,11 @@ public class Config {
      */
     public final boolean hints;
 
+    /**
+     * Whether the dealer chooses the cards it deals so that the table holds a legal set whenever the cards left allow it
+     */
+    public final boolean smartDealing;
+
     /**
      * The number of milliseconds until the dealer reshuffles the deck (0 show timer since last action, -1 show nothing)
      */
@@ -66,6 +71,12 @@ public class Config {
      */
     public final long turnTimeoutWarningMillis;
 
+    /**
+     * The number of milliseconds between updates of the countdown display, outside and inside the warning period
+     */
+    public final long timerDisplayMillis;
+    public final long timerWarningDisplayMillis;
+
     /**
      * The number of milliseconds a player gets frozen for when he scores a point
      */
@@ -86,6 +97,78 @@ public class Config {
      */
     public final long endGamePauseMillies;
 
+    /**
+     * The number of milliseconds a computer player waits between key presses
+     */
+    public final long computerPlayerDelayMillis;
+
+    /**
+     * How computer players choose their key presses: "Random" (random slots) or "Solver" (the slots of a set they find)
+     */
+    public final String computerStrategy;
+
+    /**
+     * The median time (in milliseconds) a solver computer player takes to find a set (or to give up until it looks
+     * again), and the spread of the times: the standard deviation of their natural logarithm
+     */
+    public final long computerReactionMillis;
+    public final double computerReactionSpread;
+
+    /**
+     * Whether to run headless simulated games of computer players only (no delays, no user interface, virtual clock)
+     */
+    public final boolean simulation;
+
+    /**
+     * The number of games to run back to back in simulation mode
+     */
+    public final int simulationGames;
+
+    /**
+     * How many times faster than real time the game clock runs in simulation mode
+     */
+    public final long simulationSpeedup;
+
+    /**
+     * The number of games to play at the same time in simulation mode
+     */
+    public final int simulationThreads;
+
+    /**
+     * The port to serve games to remote players on (0 to play locally)
+     */
+    public final int networkPort;
+
+    /**
+     * The number of tables (games) to serve to remote players
+     */
+    public final int networkTables;
+
+    /**
+     * The number of threads serving the connections of the remote players
+     */
+    public final int networkThreads;
+
+    /**
+     * The file to record the game journal to (null for no journal)
+     */
+    public final String journalFile;
+
+    /**
+     * The journal file of a game to replay instead of playing (null to play)
+     */
+    public final String replayFile;
+
+    /**
+     * The file to write a snapshot of the game metrics to when the games end (null for none)
+     */
+    public final String metricsFile;
+
+    /**
+     * Whether to register the game metrics as a JMX MBean (bguspl.set:type=GameMetrics)
+     */
+    public final boolean metricsJmx;
+
     /**
      * The names of the players to display on the screen
      * Note: if there are more players than names, the remaining players will be called "Player 3", "Player 4", etc.
@@ -203,13 +286,52 @@ public class Config {
         computerPlayers = Integer.parseInt(properties.getProperty("ComputerPlayers", "0"));
         players = humanPlayers + computerPlayers;
 
-        hints = Boolean.parseBoolean(properties.getProperty("Hints", "False"));
+        // simulation settings (a simulation runs with no artificial delays)
+        simulation = Boolean.parseBoolean(properties.getProperty("Simulation", "False"));
+        simulationGames = Integer.parseInt(properties.getProperty("SimulationGames", "1000"));
+        simulationSpeedup = Long.parseLong(properties.getProperty("SimulationSpeedup", "1000"));
+        simulationThreads = Math.max(1, Integer.parseInt(properties.getProperty("SimulationThreads", "1")));
+        if (simulation && humanPlayers > 0)
+            logger.severe("warning: simulation mode plays the " + humanPlayers + " human players as computer players.");
+
+        // network settings
+        String port = properties.getProperty("NetworkPort", "").trim();
+        networkPort = port.isEmpty() ? 0 : Integer.parseInt(port);
+        networkTables = Math.max(1, Integer.parseInt(properties.getProperty("NetworkTables", "1")));
+        networkThreads = Math.max(1, Integer.parseInt(properties.getProperty("NetworkThreads", "2")));
+
+        // journal settings
+        String journal = properties.getProperty("JournalFile", "").trim();
+        journalFile = journal.isEmpty() ? null : journal;
+        String replay = properties.getProperty("ReplayFile", "").trim();
+        replayFile = replay.isEmpty() ? null : replay;
+
+        // metrics settings
+        String metrics = properties.getProperty("MetricsFile", "").trim();
+        metricsFile = metrics.isEmpty() ? null : metrics;
+        metricsJmx = Boolean.parseBoolean(properties.getProperty("MetricsJmx", "False"));
+
+        hints = !simulation && Boolean.parseBoolean(properties.getProperty("Hints", "False"));
+        smartDealing = Boolean.parseBoolean(properties.getProperty("SmartDealing", "False"));
+        if (smartDealing && featureSize != 3)
+            logger.severe("warning: smart dealing requires a feature size of 3, dealing at random instead.");
         turnTimeoutMillis = (long) (Double.parseDouble(properties.getProperty("TurnTimeoutSeconds", "60")) * 1000.0);
         turnTimeoutWarningMillis = (long) (Double.parseDouble(properties.getProperty("TurnTimeoutWarningSeconds", "60")) * 1000.0);
+        timerDisplayMillis = Math.max(1, (long) (Double.parseDouble(properties.getProperty("TimerDisplaySeconds", "1")) * 1000.0));
+        timerWarningDisplayMillis = Math.max(1, (long) (Double.parseDouble(properties.getProperty("TimerWarningDisplaySeconds", "0.1")) * 1000.0));
         pointFreezeMillis = (long) (Double.parseDouble(properties.getProperty("PointFreezeSeconds", "1")) * 1000.0);
         penaltyFreezeMillis = (long) (Double.parseDouble(properties.getProperty("PenaltyFreezeSeconds", "3")) * 1000.0);
-        tableDelayMillis = (long) (Double.parseDouble(properties.getProperty("TableDelaySeconds", "0.1")) * 1000.0);
-        endGamePauseMillies = (long) (Double.parseDouble(properties.getProperty("EndGamePauseSeconds", "5")) * 1000.0);
+        tableDelayMillis = simulation ? 0 : (long) (Double.parseDouble(properties.getProperty("TableDelaySeconds", "0.1")) * 1000.0);
+        endGamePauseMillies = simulation ? 0 : (long) (Double.parseDouble(properties.getProperty("EndGamePauseSeconds", "5")) * 1000.0);
+        computerPlayerDelayMillis = simulation ? 0 : (long) (Double.parseDouble(properties.getProperty("ComputerPlayerDelaySeconds", "0.7")) * 1000.0);
+        String strategy = properties.getProperty("ComputerStrategy", "Random").trim();
+        if (!strategy.equalsIgnoreCase("Random") && !strategy.equalsIgnoreCase("Solver")) {
+            logger.severe("warning: unknown computer strategy " + strategy + ", using Random instead.");
+            strategy = "Random";
+        }
+        computerStrategy = strategy;
+        computerReactionMillis = Math.max(1, (long) (Double.parseDouble(properties.getProperty("ComputerReactionSeconds", "2")) * 1000.0));
+        computerReactionSpread = Math.max(0, Double.parseDouble(properties.getProperty("ComputerReactionSpread", "0.4")));
 
         // ui settings
         String[] names = properties.getProperty("PlayerNames", "Player 1, Player 2").split(",");
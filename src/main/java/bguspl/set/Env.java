@@ -8,11 +8,29 @@ public class Env {
     public final Config config;
     public final UserInterface ui;
     public final Util util;
+    public final GameClock clock;
+    public final GameJournal journal;
+    public final GameMetrics metrics;
 
-    public Env(Logger logger, Config config, UserInterface ui, Util util) {
+    public Env(Logger logger, Config config, UserInterface ui, Util util, GameClock clock, GameJournal journal, GameMetrics metrics) {
         this.logger = logger;
         this.config = config;
         this.ui = ui;
         this.util = util;
+        this.clock = clock;
+        this.journal = journal;
+        this.metrics = metrics;
+    }
+
+    public Env(Logger logger, Config config, UserInterface ui, Util util, GameClock clock, GameJournal journal) {
+        this(logger, config, ui, util, clock, journal, GameMetrics.NONE);
+    }
+
+    public Env(Logger logger, Config config, UserInterface ui, Util util, GameClock clock) {
+        this(logger, config, ui, util, clock, GameJournal.NONE);
+    }
+
+    public Env(Logger logger, Config config, UserInterface ui, Util util) {
+        this(logger, config, ui, util, GameClock.SYSTEM);
     }
 }
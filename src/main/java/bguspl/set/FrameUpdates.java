@@ -0,0 +1,166 @@
+package bguspl.set;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * The changes to the user interface since the last frame. The UserInterface calls (from any thread) only update the
+ * latest state of the changed slots, timer and players, so that many calls between two frames cost one update each
+ * on the screen. The event dispatch thread takes the changes once per frame (see UserInterfaceSwing).
+ */
+class FrameUpdates implements UserInterface {
+
+    /**
+     * The latest state: the card in each slot (-1 if empty), the players with a token in each slot, the timer, the
+     * freeze time and score of each player, and the winners (null until announced).
+     */
+    final int[] cards;
+    final boolean[][] tokens;
+    long timerMillies;
+    boolean timerWarn;
+    boolean timerElapsed;
+    final long[] freezes;
+    final int[] scores;
+    int[] winners;
+
+    /**
+     * What changed since the changes were last taken.
+     */
+    final BitSet changedCards;
+    final BitSet changedTokens;
+    boolean changedTimer;
+    final BitSet changedFreezes;
+    final BitSet changedScores;
+    boolean changedWinners;
+
+    FrameUpdates(Config config) {
+        cards = new int[config.tableSize];
+        Arrays.fill(cards, -1);
+        tokens = new boolean[config.tableSize][config.players];
+        freezes = new long[config.players];
+        scores = new int[config.players];
+        changedCards = new BitSet(config.tableSize);
+        changedTokens = new BitSet(config.tableSize);
+        changedFreezes = new BitSet(config.players);
+        changedScores = new BitSet(config.players);
+    }
+
+    @Override
+    public synchronized void placeCard(int card, int slot) {
+        cards[slot] = card;
+        changedCards.set(slot);
+    }
+
+    @Override
+    public synchronized void removeCard(int slot) {
+        cards[slot] = -1;
+        changedCards.set(slot);
+    }
+
+    @Override
+    public synchronized void placeToken(int player, int slot) {
+        tokens[slot][player] = true;
+        changedTokens.set(slot);
+    }
+
+    @Override
+    public synchronized void removeTokens() {
+        for (int slot = 0; slot < tokens.length; slot++)
+            removeTokens(slot);
+    }
+
+    @Override
+    public synchronized void removeTokens(int slot) {
+        Arrays.fill(tokens[slot], false);
+        changedTokens.set(slot);
+    }
+
+    @Override
+    public synchronized void removeToken(int player, int slot) {
+        tokens[slot][player] = false;
+        changedTokens.set(slot);
+    }
+
+    @Override
+    public synchronized void setCountdown(long millies, boolean warn) {
+        timerMillies = millies;
+        timerWarn = warn;
+        timerElapsed = false;
+        changedTimer = true;
+    }
+
+    @Override
+    public synchronized void setElapsed(long millies) {
+        timerMillies = millies;
+        timerElapsed = true;
+        changedTimer = true;
+    }
+
+    @Override
+    public synchronized void setFreeze(int player, long millies) {
+        freezes[player] = millies;
+        changedFreezes.set(player);
+    }
+
+    @Override
+    public synchronized void setScore(int player, int score) {
+        scores[player] = score;
+        changedScores.set(player);
+    }
+
+    @Override
+    public synchronized void announceWinner(int[] players) {
+        winners = players.clone();
+        changedWinners = true;
+    }
+
+    @Override
+    public void dispose() {}
+
+    /**
+     * Moves the changes to another (unchanged) instance: copies the changed state and marks it as changed there, and
+     * marks everything as unchanged here.
+     *
+     * @param frame - the instance to move the changes to (owned by the caller, e.g. the event dispatch thread).
+     * @return - true iff anything changed.
+     */
+    synchronized boolean moveChangesTo(FrameUpdates frame) {
+        boolean changed = !changedCards.isEmpty() || !changedTokens.isEmpty() || changedTimer
+                || !changedFreezes.isEmpty() || !changedScores.isEmpty() || changedWinners;
+        if (!changed)
+            return false;
+        for (int slot = changedCards.nextSetBit(0); slot >= 0; slot = changedCards.nextSetBit(slot + 1))
+            frame.cards[slot] = cards[slot];
+        for (int slot = changedTokens.nextSetBit(0); slot >= 0; slot = changedTokens.nextSetBit(slot + 1))
+            System.arraycopy(tokens[slot], 0, frame.tokens[slot], 0, tokens[slot].length);
+        frame.timerMillies = timerMillies;
+        frame.timerWarn = timerWarn;
+        frame.timerElapsed = timerElapsed;
+        for (int player = changedFreezes.nextSetBit(0); player >= 0; player = changedFreezes.nextSetBit(player + 1))
+            frame.freezes[player] = freezes[player];
+        for (int player = changedScores.nextSetBit(0); player >= 0; player = changedScores.nextSetBit(player + 1))
+            frame.scores[player] = scores[player];
+        frame.winners = winners;
+
+        frame.changedCards.or(changedCards);
+        frame.changedTokens.or(changedTokens);
+        frame.changedTimer |= changedTimer;
+        frame.changedFreezes.or(changedFreezes);
+        frame.changedScores.or(changedScores);
+        frame.changedWinners |= changedWinners;
+        clearChanges();
+        return true;
+    }
+
+    /**
+     * Marks everything as unchanged.
+     */
+    synchronized void clearChanges() {
+        changedCards.clear();
+        changedTokens.clear();
+        changedTimer = false;
+        changedFreezes.clear();
+        changedScores.clear();
+        changedWinners = false;
+    }
+}
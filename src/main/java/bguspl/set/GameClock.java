@@ -0,0 +1,51 @@
+package bguspl.set;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+
+/**
+ * The source of time for the game entities. Allows the game to run on a virtual clock in simulation mode.
+ */
+public interface GameClock {
+
+    /**
+     * The real (wall) clock.
+     */
+    GameClock SYSTEM = new GameClock() {
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+
+        @Override
+        public void sleep(long millis) throws InterruptedException {
+            Thread.sleep(millis);
+        }
+
+        @Override
+        public void await(Condition condition, long millis) throws InterruptedException {
+            condition.await(millis, TimeUnit.MILLISECONDS);
+        }
+    };
+
+    /**
+     * @return - the current time in milliseconds.
+     */
+    long currentTimeMillis();
+
+    /**
+     * Sleeps for the specified number of milliseconds.
+     *
+     * @param millis - the time to sleep in milliseconds.
+     */
+    void sleep(long millis) throws InterruptedException;
+
+    /**
+     * Waits on a condition until signalled or until the specified number of milliseconds passed.
+     * The caller must hold the lock of the condition.
+     *
+     * @param condition - the condition to wait on.
+     * @param millis    - the maximum time to wait in milliseconds.
+     */
+    void await(Condition condition, long millis) throws InterruptedException;
+}
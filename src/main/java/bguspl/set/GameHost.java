@@ -0,0 +1,265 @@
+package bguspl.set;
+
+import bguspl.set.ex.Dealer;
+import bguspl.set.ex.Player;
+import bguspl.set.ex.Table;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Runs many independent games in one JVM. Each game has its own environment, table, dealer and players; the dealers
+ * run on a shared pool of a bounded number of threads, so at most that many games are played at the same time and
+ * the rest wait in line.
+ */
+public class GameHost {
+
+    private final Logger logger;
+    private final Config config;
+    private final Util util;
+    private final GameMetrics metrics;
+    private final ExecutorService dealers;
+
+    /**
+     * The games that were started and did not finish yet, by id.
+     */
+    private final Map<Integer, Game> games = new ConcurrentHashMap<>();
+
+    private final AtomicInteger nextId = new AtomicInteger();
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong finished = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong playNanos = new AtomicLong();
+    private final long startNanos = System.nanoTime();
+
+    /**
+     * @param logger      - the logger of the games (and of the host itself).
+     * @param config      - the configuration of all the games.
+     * @param parallelism - the maximal number of games played at the same time.
+     */
+    public GameHost(Logger logger, Config config, int parallelism) {
+        this(logger, config, parallelism, GameMetrics.NONE);
+    }
+
+    /**
+     * @param logger      - the logger of the games (and of the host itself).
+     * @param config      - the configuration of all the games.
+     * @param parallelism - the maximal number of games played at the same time.
+     * @param metrics     - the metrics of all the games.
+     */
+    public GameHost(Logger logger, Config config, int parallelism, GameMetrics metrics) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        this.logger = logger;
+        this.config = config;
+        this.util = new UtilImpl(config);
+        this.metrics = metrics;
+        AtomicInteger threads = new AtomicInteger();
+        this.dealers = Executors.newFixedThreadPool(parallelism, task -> {
+            Thread thread = new Thread(task, "game-host-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts a new headless game, on the virtual clock in simulation mode and on the system clock otherwise.
+     *
+     * @return - the game.
+     * @throws IllegalStateException - if the host was shut down.
+     */
+    public Game start() {
+        return start(new UserInterfaceHeadless(), config.simulation ? new VirtualClock(config.simulationSpeedup) : GameClock.SYSTEM);
+    }
+
+    /**
+     * Starts a new game (it is played as soon as a dealer thread of the host is free).
+     *
+     * @param ui    - the user interface of the game (not shared with other games).
+     * @param clock - the clock of the game.
+     * @return - the game.
+     * @throws IllegalStateException - if the host was shut down.
+     */
+    public Game start(UserInterface ui, GameClock clock) {
+        Env env = new Env(logger, config, ui, util, clock, GameJournal.NONE, metrics);
+        Game game = new Game(nextId.getAndIncrement(), env);
+        games.put(game.id, game);
+        try {
+            game.future = dealers.submit(game::play);
+        } catch (RejectedExecutionException e) {
+            games.remove(game.id);
+            throw new IllegalStateException("the game host was shut down");
+        }
+        started.incrementAndGet();
+        return game;
+    }
+
+    /**
+     * Stops accepting new games. The games already started are played to the end.
+     */
+    public void shutdown() {
+        dealers.shutdown();
+    }
+
+    /**
+     * Stops accepting new games and terminates all the games that did not finish yet.
+     */
+    public void terminate() {
+        shutdown();
+        for (Game game : games.values())
+            game.terminate();
+    }
+
+    /**
+     * Waits until all the games finished after a shutdown.
+     *
+     * @return - true iff all the games finished before the timeout.
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return dealers.awaitTermination(timeout, unit);
+    }
+
+    /**
+     * @return - the number of games that were started and did not finish yet (playing or waiting for a dealer thread).
+     */
+    public int activeGames() {
+        return games.size();
+    }
+
+    /**
+     * @return - a snapshot of the throughput of the host since it was created.
+     */
+    public Stats stats() {
+        return new Stats(started.get(), finished.get(), failed.get(), System.nanoTime() - startNanos, playNanos.get());
+    }
+
+    /**
+     * A game played by the host.
+     */
+    public class Game {
+
+        public final int id;
+        private final Env env;
+        private final Table table;
+        private final Player[] players;
+        private final Dealer dealer;
+        private Future<int[]> future;
+
+        private Game(int id, Env env) {
+            this.id = id;
+            this.env = env;
+            table = new Table(env);
+            players = new Player[config.players];
+            dealer = new Dealer(env, table, players);
+            for (int i = 0; i < players.length; i++)
+                players[i] = new Player(env, dealer, table, i, i < config.humanPlayers && !config.simulation);
+        }
+
+        private int[] play() {
+            long start = System.nanoTime();
+            String name = "dealer " + id;
+            ThreadLogger.logStart(env.logger, name);
+            try {
+                dealer.run();
+                int[] scores = new int[players.length];
+                for (int i = 0; i < players.length; i++)
+                    scores[i] = players[i].score();
+                finished.incrementAndGet();
+                return scores;
+            } catch (RuntimeException | Error e) {
+                failed.incrementAndGet();
+                logger.severe("game " + id + " failed: " + e);
+                throw e;
+            } finally {
+                playNanos.addAndGet(System.nanoTime() - start);
+                games.remove(id);
+                ThreadLogger.logStop(env.logger, name);
+            }
+        }
+
+        /**
+         * @return - the player with the given id (e.g. to forward its key presses).
+         */
+        public Player player(int id) {
+            return players[id];
+        }
+
+        /**
+         * Ends the game (a game that did not start yet ends as soon as it starts).
+         */
+        public void terminate() {
+            dealer.terminate();
+        }
+
+        /**
+         * @return - true iff the game finished (or failed).
+         */
+        public boolean isDone() {
+            return future.isDone();
+        }
+
+        /**
+         * Waits until the game finishes.
+         *
+         * @return - the final scores of the players.
+         * @throws ExecutionException - if the game failed.
+         */
+        public int[] await() throws InterruptedException, ExecutionException {
+            return future.get();
+        }
+    }
+
+    /**
+     * The number of games started, finished and failed, and the time spent, since the host was created.
+     */
+    public static class Stats {
+
+        public final long started;
+        public final long finished;
+        public final long failed;
+        public final long elapsedNanos;
+
+        /**
+         * The total time the games were played, over all dealer threads.
+         */
+        public final long playNanos;
+
+        Stats(long started, long finished, long failed, long elapsedNanos, long playNanos) {
+            this.started = started;
+            this.finished = finished;
+            this.failed = failed;
+            this.elapsedNanos = elapsedNanos;
+            this.playNanos = playNanos;
+        }
+
+        /**
+         * @return - the number of games finished per second of wall clock time.
+         */
+        public double gamesPerSecond() {
+            return elapsedNanos == 0 ? 0 : finished * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * @return - the average time a finished or failed game was played, in milliseconds.
+         */
+        public double averageGameMillis() {
+            long games = finished + failed;
+            return games == 0 ? 0 : playNanos / 1e6 / games;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d games started, %d finished, %d failed in %.2f seconds (%.2f games per second, %.1f ms per game)",
+                    started, finished, failed, elapsedNanos / 1e9, gamesPerSecond(), averageGameMillis());
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package bguspl.set;
+
+/**
+ * Receives the events of a game as they happen, e.g. to record them for a later replay (see JournalWriter).
+ * Table events are reported while the slot is locked, so the order of the events is an order in which they could
+ * have happened. All the methods do nothing by default.
+ */
+public interface GameJournal {
+
+    /**
+     * A journal that ignores all the events.
+     */
+    GameJournal NONE = new GameJournal() {};
+
+    /**
+     * Called by the dealer when the game starts.
+     *
+     * @param seed - the seed of the dealer's random number generator.
+     */
+    default void gameStarted(long seed) {}
+
+    /**
+     * Called by the dealer when the game ends.
+     */
+    default void gameEnded() {}
+
+    /**
+     * Called by the dealer before dealing the cards of a new round.
+     */
+    default void roundStarted() {}
+
+    /**
+     * Called by the dealer after a round ended (before it collects the cards from the table).
+     */
+    default void roundEnded() {}
+
+    default void cardPlaced(int card, int slot) {}
+
+    default void cardRemoved(int slot) {}
+
+    default void tokenPlaced(int player, int slot) {}
+
+    default void tokenRemoved(int player, int slot) {}
+
+    /**
+     * Called by the dealer when it starts checking a claim (before it checks whether the cards of the claimed slots
+     * were changed since the claim was made).
+     *
+     * @param player - the claiming player.
+     * @param slots  - the claimed slots, in ascending order.
+     */
+    default void claimChecked(int player, int[] slots) {}
+
+    default void point(int player) {}
+
+    default void penalty(int player) {}
+}
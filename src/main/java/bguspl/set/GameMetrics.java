@@ -0,0 +1,78 @@
+package bguspl.set;
+
+/**
+ * Receives measurements of the hot paths of a game as they happen, e.g. to aggregate them for monitoring (see
+ * MetricsRecorder). The methods are called on the game threads, so they must be cheap. All the methods do nothing by
+ * default.
+ */
+public interface GameMetrics {
+
+    /**
+     * Metrics that ignore all the measurements.
+     */
+    GameMetrics NONE = new GameMetrics() {
+        @Override
+        public boolean enabled() {
+            return false;
+        }
+    };
+
+    /**
+     * @return - false iff the measurements are ignored (so that the callers need not even take them).
+     */
+    default boolean enabled() {
+        return true;
+    }
+
+    /**
+     * Called by a player when it posts a claim for the dealer to check.
+     *
+     * @param depth - the number of claims not yet checked (including this one).
+     */
+    default void claimQueued(int depth) {}
+
+    /**
+     * Called by the dealer when it gives the verdict on a claim.
+     *
+     * @param latencyNanos - the time from the claim to the verdict.
+     * @param stale        - true iff the claim was stale (its cards were changed since it was made).
+     */
+    default void claimChecked(long latencyNanos, boolean stale) {}
+
+    /**
+     * Called by the dealer after it tested whether the cards of a claim are a set.
+     */
+    default void setTested(long nanos) {}
+
+    /**
+     * Called after a search for sets among the cards on the table (or in the deck).
+     */
+    default void setsSearched(long nanos) {}
+
+    /**
+     * Called by the dealer when it is done shuffling: from the end of a round until the players may play again.
+     */
+    default void reshuffled(long nanos) {}
+
+    /**
+     * Called by the dealer when the table had no legal set for a while (until it was dealt one or the round ended).
+     */
+    default void deadBoard(long millis) {}
+
+    /**
+     * Called by a player before it takes a key press from its queue.
+     *
+     * @param queued - the number of key presses in the queue.
+     */
+    default void keyPressTaken(int queued) {}
+
+    /**
+     * Called by a player when it is done being frozen (after a point or a penalty).
+     */
+    default void frozen(long millis) {}
+
+    /**
+     * Called by a player that had to wait for a slot lock (while the dealer changed the card in the slot).
+     */
+    default void slotLockBlocked(long nanos) {}
+}
@@ -0,0 +1,109 @@
+package bguspl.set;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of non-negative values with a bounded relative error (like an HdrHistogram): the values below 16 are
+ * counted exactly, and every power of two above is split into 16 buckets, so a value is reported at most 1/16 above
+ * what it was. Recording a value is a single atomic increment of a bucket of the recording thread's stripe, so threads
+ * that record at the same time rarely contend.
+ */
+public class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    /**
+     * The number of stripes (a power of two): each stripe has its own counts of all the buckets.
+     */
+    private static final int STRIPES = Integer.highestOneBit(Math.min(8, Runtime.getRuntime().availableProcessors()) * 2 - 1);
+
+    private final AtomicLongArray counts = new AtomicLongArray(STRIPES * BUCKETS);
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Records a value (negative values are recorded as 0).
+     */
+    public void record(long value) {
+        value = Math.max(0, value);
+        int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+        counts.incrementAndGet(stripe * BUCKETS + bucket(value));
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS)
+            return (int) value;
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    /**
+     * @return - the highest value counted in a bucket.
+     */
+    static long highestValue(int bucket) {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    /**
+     * @return - the counts of the values recorded so far (values recorded while the snapshot is taken may be missing).
+     */
+    public Snapshot snapshot() {
+        long[] buckets = new long[BUCKETS];
+        long count = 0;
+        for (int stripe = 0; stripe < STRIPES; stripe++)
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                long bucketCount = counts.get(stripe * BUCKETS + bucket);
+                buckets[bucket] += bucketCount;
+                count += bucketCount;
+            }
+        return new Snapshot(buckets, count, sum.sum(), max.get());
+    }
+
+    /**
+     * The values recorded by a histogram up to some point.
+     */
+    public static class Snapshot {
+
+        private final long[] buckets;
+        public final long count;
+        public final long sum;
+        public final long max;
+
+        private Snapshot(long[] buckets, long count, long sum, long max) {
+            this.buckets = buckets;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public long mean() {
+            return count == 0 ? 0 : sum / count;
+        }
+
+        /**
+         * @param percentile - between 0 and 100.
+         * @return - a value that at least this percentage of the recorded values are not greater than (0 if none).
+         */
+        public long percentile(double percentile) {
+            long rank = (long) Math.ceil(count * percentile / 100);
+            long counted = 0;
+            for (int bucket = 0; bucket < buckets.length; bucket++) {
+                counted += buckets[bucket];
+                if (counted >= Math.max(1, rank) && buckets[bucket] > 0)
+                    return Math.min(highestValue(bucket), max);
+            }
+            return 0;
+        }
+    }
+}
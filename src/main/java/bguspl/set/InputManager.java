@@ -5,6 +5,7 @@ import bguspl.set.ex.Player;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 import java.util.Arrays;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -13,6 +14,13 @@ import java.util.logging.Logger;
 class InputManager extends KeyAdapter {
 
     private static final int MAX_KEY_CODE = 255;
+
+    /**
+     * When the log level is FINE or lower, one of every this many key presses is logged.
+     */
+    private static final int LOG_EVERY_KEY_PRESSES = 16;
+    private int keyPresses;
+
     private final Player[] players;
     int[] keyMap = new int[MAX_KEY_CODE + 1];
     int[] keyToSlot = new int[MAX_KEY_CODE + 1];
@@ -41,10 +49,12 @@ class InputManager extends KeyAdapter {
     public void keyPressed(KeyEvent e) {
         // dispatch the key event to the player according to the key map
         int keyCode = e.getKeyCode();
-        int player = keyMap[keyCode] - 1;
+        int player = keyCode < keyMap.length ? keyMap[keyCode] - 1 : -1;
         if (player >= 0){
-            logger.severe("key " + keyCode + " was pressed by player " + (player + 1));
             players[player].keyPressed(keyToSlot[keyCode]);
+            if (++keyPresses % LOG_EVERY_KEY_PRESSES == 0 && logger.isLoggable(Level.FINE))
+                logger.fine("key " + keyCode + " was pressed by player " + (player + 1) + " (" + keyPresses
+                        + " key presses, " + players[player].droppedKeyPresses() + " of them dropped)");
         }
     }
 }
@@ -0,0 +1,211 @@
+package bguspl.set;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A single event of a binary game journal (see JournalWriter).
+ * Each event is encoded as its kind (one byte), the time since the previous event and its arguments, all the
+ * numbers but the seed as variable length integers (7 bits per byte).
+ */
+public final class JournalEvent {
+
+    /**
+     * The kinds of events.
+     */
+    public static final byte GAME_STARTED = 1;
+    public static final byte GAME_ENDED = 2;
+    public static final byte ROUND_STARTED = 3;
+    public static final byte ROUND_ENDED = 4;
+    public static final byte CARD_PLACED = 5;
+    public static final byte CARD_REMOVED = 6;
+    public static final byte TOKEN_PLACED = 7;
+    public static final byte TOKEN_REMOVED = 8;
+    public static final byte CLAIM_CHECKED = 9;
+    public static final byte POINT = 10;
+    public static final byte PENALTY = 11;
+
+    private static final String[] NAMES = {null, "game started", "game ended", "round started", "round ended",
+            "card placed", "card removed", "token placed", "token removed", "claim checked", "point", "penalty"};
+
+    public final byte kind;
+
+    /**
+     * The game time of the event, in milliseconds since the journal was opened.
+     */
+    public final long time;
+
+    /**
+     * The arguments of the event (-1, null or 0 if not relevant).
+     */
+    public final int player;
+    public final int slot;
+    public final int card;
+    public final int[] slots;
+    public final long seed;
+
+    public JournalEvent(byte kind, long time, int player, int slot, int card, int[] slots, long seed) {
+        this.kind = kind;
+        this.time = time;
+        this.player = player;
+        this.slot = slot;
+        this.card = card;
+        this.slots = slots;
+        this.seed = seed;
+    }
+
+    /**
+     * @return - true iff the event is caused by the dealer's decisions, rather than by the players' actions and timing.
+     */
+    public boolean isDealerOutput() {
+        return kind == CARD_PLACED || kind == CARD_REMOVED || kind == POINT || kind == PENALTY;
+    }
+
+    /**
+     * @return - an upper bound of the length of an encoded event with the given claimed slots (or null).
+     */
+    static int maxLength(int[] slots) {
+        return 1 + Long.BYTES + 10 * (3 + (slots == null ? 0 : slots.length));
+    }
+
+    /**
+     * Encodes an event (without creating it).
+     *
+     * @param out       - the buffer to encode the event into (with at least maxLength(slots) bytes remaining).
+     * @param timeDelta - the time since the previous event.
+     */
+    static void encode(ByteBuffer out, byte kind, long timeDelta, int player, int slot, int card, int[] slots, long seed) {
+        out.put(kind);
+        writeVarLong(out, timeDelta);
+        switch (kind) {
+            case GAME_STARTED:
+                out.putLong(seed);
+                break;
+            case CARD_PLACED:
+                writeVarLong(out, card);
+                writeVarLong(out, slot);
+                break;
+            case CARD_REMOVED:
+                writeVarLong(out, slot);
+                break;
+            case TOKEN_PLACED:
+            case TOKEN_REMOVED:
+                writeVarLong(out, player);
+                writeVarLong(out, slot);
+                break;
+            case CLAIM_CHECKED:
+                writeVarLong(out, player);
+                writeVarLong(out, slots.length);
+                for (int s : slots)
+                    writeVarLong(out, s);
+                break;
+            case POINT:
+            case PENALTY:
+                writeVarLong(out, player);
+                break;
+        }
+    }
+
+    /**
+     * Reads the next event.
+     *
+     * @param in       - the journal stream.
+     * @param prevTime - the time of the previous event.
+     * @return - the event, or null at the end of the journal.
+     * @throws IOException - if the journal cannot be read or is corrupt.
+     */
+    static JournalEvent read(DataInputStream in, long prevTime) throws IOException {
+        int kind = in.read();
+        if (kind < 0)
+            return null;
+        long time = prevTime + readVarLong(in);
+        int player = -1, slot = -1, card = -1;
+        int[] slots = null;
+        long seed = 0;
+        switch (kind) {
+            case GAME_STARTED:
+                seed = in.readLong();
+                break;
+            case GAME_ENDED:
+            case ROUND_STARTED:
+            case ROUND_ENDED:
+                break;
+            case CARD_PLACED:
+                card = (int) readVarLong(in);
+                slot = (int) readVarLong(in);
+                break;
+            case CARD_REMOVED:
+                slot = (int) readVarLong(in);
+                break;
+            case TOKEN_PLACED:
+            case TOKEN_REMOVED:
+                player = (int) readVarLong(in);
+                slot = (int) readVarLong(in);
+                break;
+            case CLAIM_CHECKED:
+                player = (int) readVarLong(in);
+                slots = new int[(int) readVarLong(in)];
+                for (int i = 0; i < slots.length; i++)
+                    slots[i] = (int) readVarLong(in);
+                break;
+            case POINT:
+            case PENALTY:
+                player = (int) readVarLong(in);
+                break;
+            default:
+                throw new IOException("corrupt journal: unknown event kind " + kind);
+        }
+        return new JournalEvent((byte) kind, time, player, slot, card, slots, seed);
+    }
+
+    static void writeVarLong(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0)
+                throw new EOFException("corrupt journal: truncated event");
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IOException("corrupt journal: variable length integer is too long");
+    }
+
+    /**
+     * Events are equal if they are of the same kind and have the same arguments, regardless of their time.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof JournalEvent)) return false;
+        JournalEvent other = (JournalEvent) o;
+        return kind == other.kind && player == other.player && slot == other.slot && card == other.card
+                && Arrays.equals(slots, other.slots) && seed == other.seed;
+    }
+
+    @Override
+    public int hashCode() {
+        return ((kind * 31 + player) * 31 + slot) * 31 + card;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(NAMES[kind]);
+        if (kind == GAME_STARTED) sb.append(" seed ").append(seed);
+        if (player >= 0) sb.append(" player ").append(player + 1);
+        if (card >= 0) sb.append(" card ").append(card);
+        if (slot >= 0) sb.append(" slot ").append(slot);
+        if (slots != null) sb.append(" slots ").append(Arrays.toString(slots));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,57 @@
+package bguspl.set;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads a binary game journal written by JournalWriter.
+ */
+public class JournalReader implements Closeable {
+
+    private final DataInputStream in;
+    private long lastTime;
+
+    /**
+     * The dimensions of the journaled game.
+     */
+    public final int featureSize;
+    public final int featureCount;
+    public final int tableSize;
+    public final int players;
+
+    /**
+     * @param in - the journal stream.
+     * @throws IOException - if the header cannot be read or it is not a journal of a supported version.
+     */
+    public JournalReader(InputStream in) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(in));
+        if (this.in.readInt() != JournalWriter.MAGIC)
+            throw new IOException("not a game journal");
+        int version = this.in.readUnsignedByte();
+        if (version != JournalWriter.VERSION)
+            throw new IOException("unsupported game journal version " + version);
+        featureSize = (int) JournalEvent.readVarLong(this.in);
+        featureCount = (int) JournalEvent.readVarLong(this.in);
+        tableSize = (int) JournalEvent.readVarLong(this.in);
+        players = (int) JournalEvent.readVarLong(this.in);
+    }
+
+    /**
+     * @return - the next event, or null at the end of the journal.
+     * @throws IOException - if the journal cannot be read or is corrupt.
+     */
+    public JournalEvent next() throws IOException {
+        JournalEvent event = JournalEvent.read(in, lastTime);
+        if (event != null)
+            lastTime = event.time;
+        return event;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
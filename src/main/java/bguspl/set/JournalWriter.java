@@ -0,0 +1,199 @@
+package bguspl.set;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Records the events of a game to a compact binary append-only journal, which JournalReader reads back and
+ * GameReplay replays. The journal starts with a header (magic number, version and the dimensions of the game),
+ * followed by the events in the order they were reported (see JournalEvent for the encoding).
+ * The events are encoded into a buffer in memory (which takes a short lock and allocates nothing); full buffers are
+ * written to the stream by a background writer thread, so the game threads (which report some of the events while
+ * holding a slot lock) never wait for I/O.
+ */
+public class JournalWriter implements GameJournal, Closeable {
+
+    static final int MAGIC = 0x5345544A; // "SETJ"
+    static final int VERSION = 1;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Tells the writer thread that the journal is closed.
+     */
+    private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+    private final OutputStream out;
+    private final GameClock clock;
+    private final long startTime;
+    private long lastTime;
+
+    /**
+     * The buffer the events are encoded into (guarded by this), the full buffers waiting to be written and the
+     * written buffers, to be reused.
+     */
+    private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final BlockingQueue<ByteBuffer> full = new LinkedBlockingQueue<>();
+    private final Queue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+
+    private final Thread writer;
+    private boolean closed;
+
+    /**
+     * The first error writing the journal (the journal is not written after an error).
+     */
+    private volatile IOException failure;
+
+    /**
+     * @param out    - the stream to write the journal to.
+     * @param config - the game configuration.
+     * @param clock  - the clock of the game (for the event times).
+     * @throws IOException - if the header cannot be written.
+     */
+    public JournalWriter(OutputStream out, Config config, GameClock clock) throws IOException {
+        this.out = out;
+        this.clock = clock;
+        startTime = lastTime = clock.currentTimeMillis();
+        ByteBuffer header = ByteBuffer.allocate(Integer.BYTES + 1 + 4 * 10);
+        header.putInt(MAGIC);
+        header.put((byte) VERSION);
+        JournalEvent.writeVarLong(header, config.featureSize);
+        JournalEvent.writeVarLong(header, config.featureCount);
+        JournalEvent.writeVarLong(header, config.tableSize);
+        JournalEvent.writeVarLong(header, config.players);
+        out.write(header.array(), 0, header.position());
+        writer = new Thread(this::writeLoop, "journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    private synchronized void write(byte kind, int player, int slot, int card, int[] slots, long seed) {
+        if (closed || failure != null)
+            return;
+        long now = Math.max(lastTime, clock.currentTimeMillis());
+        if (buffer.remaining() < JournalEvent.maxLength(slots)) {
+            full.add(buffer);
+            ByteBuffer next = free.poll();
+            buffer = next != null ? next : ByteBuffer.allocate(BUFFER_SIZE);
+        }
+        JournalEvent.encode(buffer, kind, now - lastTime, player, slot, card, slots, seed);
+        lastTime = now;
+    }
+
+    private void writeLoop() {
+        while (true) {
+            ByteBuffer written;
+            try {
+                written = full.take();
+            } catch (InterruptedException e) {
+                continue; // the journal is written until it is closed
+            }
+            if (written == END)
+                return;
+            if (failure == null) try {
+                out.write(written.array(), 0, written.position());
+            } catch (IOException e) {
+                failure = e;
+            }
+            written.clear();
+            free.add(written);
+        }
+    }
+
+    private void write(byte kind, int player, int slot) {
+        write(kind, player, slot, -1, null, 0);
+    }
+
+    @Override
+    public void gameStarted(long seed) {
+        write(JournalEvent.GAME_STARTED, -1, -1, -1, null, seed);
+    }
+
+    @Override
+    public void gameEnded() {
+        write(JournalEvent.GAME_ENDED, -1, -1);
+    }
+
+    @Override
+    public void roundStarted() {
+        write(JournalEvent.ROUND_STARTED, -1, -1);
+    }
+
+    @Override
+    public void roundEnded() {
+        write(JournalEvent.ROUND_ENDED, -1, -1);
+    }
+
+    @Override
+    public void cardPlaced(int card, int slot) {
+        write(JournalEvent.CARD_PLACED, -1, slot, card, null, 0);
+    }
+
+    @Override
+    public void cardRemoved(int slot) {
+        write(JournalEvent.CARD_REMOVED, -1, slot);
+    }
+
+    @Override
+    public void tokenPlaced(int player, int slot) {
+        write(JournalEvent.TOKEN_PLACED, player, slot);
+    }
+
+    @Override
+    public void tokenRemoved(int player, int slot) {
+        write(JournalEvent.TOKEN_REMOVED, player, slot);
+    }
+
+    @Override
+    public void claimChecked(int player, int[] slots) {
+        write(JournalEvent.CLAIM_CHECKED, player, -1, -1, slots, 0);
+    }
+
+    @Override
+    public void point(int player) {
+        write(JournalEvent.POINT, player, -1);
+    }
+
+    @Override
+    public void penalty(int player) {
+        write(JournalEvent.PENALTY, player, -1);
+    }
+
+    /**
+     * Writes the buffered events (waiting for the writer thread) and closes the stream.
+     *
+     * @throws IOException - if any part of the journal could not be written.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed)
+                return;
+            closed = true;
+            full.add(buffer);
+            full.add(END);
+        }
+        boolean interrupted = false;
+        while (writer.isAlive())
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+        try {
+            out.close();
+        } catch (IOException e) {
+            if (failure == null) failure = e;
+        }
+        if (failure != null)
+            throw failure;
+    }
+}
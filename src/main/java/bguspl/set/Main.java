@@ -1,15 +1,24 @@
 package bguspl.set;
 
 import bguspl.set.ex.Dealer;
+import bguspl.set.ex.GameReplay;
 import bguspl.set.ex.Player;
 import bguspl.set.ex.Table;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.concurrent.ExecutionException;
 import java.util.logging.*;
 
 /**
@@ -43,6 +52,35 @@ public class Main {
         logger = initLogger();
         ThreadLogger.logStart(logger, Thread.currentThread().getName());
         Config config = new Config(logger, "config.properties");
+        MetricsRecorder metrics = createMetrics(logger, config);
+
+        if (config.simulation) {
+            try {
+                new Simulation(logger, config).run(metrics != null ? metrics : GameMetrics.NONE);
+            } catch (InterruptedException ignored) {
+            } finally {
+                writeMetrics(logger, config, metrics);
+                ThreadLogger.logStop(logger, Thread.currentThread().getName());
+                for (Handler h : logger.getHandlers()) h.flush();
+            }
+            return;
+        }
+
+        if (config.replayFile != null) {
+            replay(logger, config);
+            ThreadLogger.logStop(logger, Thread.currentThread().getName());
+            for (Handler h : logger.getHandlers()) h.flush();
+            return;
+        }
+
+        if (config.networkPort > 0) {
+            serve(logger, config, metrics != null ? metrics : GameMetrics.NONE);
+            writeMetrics(logger, config, metrics);
+            ThreadLogger.logStop(logger, Thread.currentThread().getName());
+            for (Handler h : logger.getHandlers()) h.flush();
+            return;
+        }
+
         Util util = new UtilImpl(config);
 
         Player[] players = new Player[config.players];
@@ -57,7 +95,14 @@ public class Main {
         }
         ui = new UserInterfaceDecorator(logger, util, ui);
 
-        Env env = new Env(logger, config, ui, util);
+        JournalWriter journal = null;
+        if (config.journalFile != null) try {
+            journal = new JournalWriter(new FileOutputStream(config.journalFile), config, GameClock.SYSTEM);
+        } catch (IOException e) {
+            logger.severe("cannot create game journal " + config.journalFile + ": " + e.getMessage());
+        }
+        Env env = new Env(logger, config, ui, util, GameClock.SYSTEM, journal != null ? journal : GameJournal.NONE,
+                metrics != null ? metrics : GameMetrics.NONE);
 
         // create the game entities
         Table table = new Table(env);
@@ -79,22 +124,109 @@ public class Main {
             System.out.println("Thanks for playing... it was fun!");
             ThreadLogger.logStop(logger, Thread.currentThread().getName());
             if (!xButtonPressed) env.ui.dispose();
+            if (journal != null) try {
+                journal.close();
+            } catch (IOException e) {
+                logger.severe("error writing game journal " + config.journalFile + ": " + e.getMessage());
+            }
+            writeMetrics(logger, config, metrics);
             for (Handler h : logger.getHandlers()) h.flush();
         }
     }
 
+    /**
+     * @return - the recorder of the game metrics, or null if the configuration neither exports them to a file nor
+     *           over JMX.
+     */
+    private static MetricsRecorder createMetrics(Logger logger, Config config) {
+        if (config.metricsFile == null && !config.metricsJmx)
+            return null;
+        MetricsRecorder metrics = new MetricsRecorder();
+        if (config.metricsJmx) try {
+            metrics.registerMBean();
+        } catch (IllegalStateException e) {
+            logger.severe(e.getMessage());
+        }
+        return metrics;
+    }
+
+    private static void writeMetrics(Logger logger, Config config, MetricsRecorder metrics) {
+        if (metrics != null && config.metricsFile != null) try {
+            metrics.writeTo(Paths.get(config.metricsFile));
+        } catch (IOException e) {
+            logger.severe("error writing game metrics " + config.metricsFile + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Replays the game recorded in the journal file of the configuration and prints the final scores.
+     */
+    private static void replay(Logger logger, Config config) {
+        Env env = new Env(logger, config, new UserInterfaceHeadless(), new UtilImpl(config));
+        try (InputStream in = new FileInputStream(config.replayFile)) {
+            long start = System.nanoTime();
+            int[] scores = new GameReplay(env, in).run();
+            StringBuilder sb = new StringBuilder(String.format("replayed %s in %.3f seconds.", config.replayFile, (System.nanoTime() - start) / 1e9));
+            for (int i = 0; i < scores.length; i++)
+                sb.append(String.format(" %s: %d;", config.playerNames[i], scores[i]));
+            logger.severe(sb.toString());
+            System.out.println(sb);
+        } catch (IOException | IllegalStateException e) {
+            logger.severe("cannot replay " + config.replayFile + ": " + e.getMessage());
+            System.out.println("Cannot replay " + config.replayFile + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Serves config.networkTables games to remote players, until all of them end.
+     */
+    private static void serve(Logger logger, Config config, GameMetrics metrics) {
+        GameHost host = new GameHost(logger, config, config.networkTables, metrics);
+        try (NetworkServer server = new NetworkServer(logger, config, new InetSocketAddress(config.networkPort), config.networkThreads)) {
+            GameHost.Game[] games = new GameHost.Game[config.networkTables];
+            for (int i = 0; i < games.length; i++) {
+                UserInterfaceNetwork ui = new UserInterfaceNetwork(config);
+                games[i] = host.start(ui, GameClock.SYSTEM);
+                server.addTable(games[i].id, ui, games[i]::player);
+            }
+            server.start();
+            if (server.humanSeats() == 0) {
+                logger.warning("there are no human players, so remote players cannot join the tables.");
+                System.out.println("Warning: there are no human players, so remote players cannot join the tables.");
+            }
+            System.out.println("Serving " + games.length + " tables on port " + server.port() + ".");
+            for (GameHost.Game game : games) {
+                try {
+                    game.await();
+                } catch (ExecutionException e) {
+                    logger.severe("the game at table " + game.id + " failed: " + e.getCause());
+                }
+                server.removeTable(game.id);
+            }
+        } catch (IOException e) {
+            logger.severe("cannot serve on port " + config.networkPort + ": " + e.getMessage());
+            System.out.println("Cannot serve on port " + config.networkPort + ": " + e.getMessage());
+        } catch (InterruptedException ignored) {
+        } finally {
+            host.terminate();
+        }
+    }
+
     private static Logger initLogger() {
 
         //just to make our log file nicer :)
         SimpleDateFormat format = new SimpleDateFormat("M-d_HH-mm-ss");
-        FileHandler handler;
+        Handler handler;
         try {
             //noinspection ResultOfMethodCallIgnored
             new File("./logs/").mkdirs();
-            handler = new FileHandler("./logs/" + format.format(Calendar.getInstance().getTime()) + ".log");
+            OutputStream stream = new BufferedOutputStream(new FileOutputStream("./logs/" + format.format(Calendar.getInstance().getTime()) + ".log"));
+            // the game threads only hand records over to a background writer (see AsyncLogHandler)
+            handler = new AsyncLogHandler(new StreamHandler(stream, new SimpleFormatter()));
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
+        handler.setLevel(Level.ALL);
 
         java.util.logging.Logger logger = java.util.logging.Logger.getLogger("SetGameLogger");
         logger.setUseParentHandlers(false);
@@ -109,9 +241,9 @@ public class Main {
         if (handlers != null) Arrays.stream(handlers).forEach(h -> h.setFormatter(new SimpleFormatter() {
             // default format (with timestamp)  = "[%1$tF %1$tT] [%2$-7s] %3$s%n";
             @Override
-            public synchronized String format(LogRecord lr) {
+            public String format(LogRecord lr) {
                 return String.format(format, new Date(lr.getMillis()),
-                        lr.getLevel().getLocalizedName(), lr.getMessage()
+                        lr.getLevel().getLocalizedName(), formatMessage(lr)
                 );
             }
         }));
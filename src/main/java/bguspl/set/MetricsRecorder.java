@@ -0,0 +1,153 @@
+package bguspl.set;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aggregates the measurements of any number of games (see GameMetrics) into counters and histograms, and exports
+ * snapshots of them: to a file, or over JMX as an MXBean.
+ */
+public class MetricsRecorder implements GameMetrics, MetricsRecorderMXBean {
+
+    /**
+     * The name the recorder is registered under by registerMBean().
+     */
+    public static final String OBJECT_NAME = "bguspl.set:type=GameMetrics";
+
+    private final LongAdder claims = new LongAdder();
+    private final LongAdder staleClaims = new LongAdder();
+    private final Histogram claimQueueDepth = new Histogram();
+    private final Histogram claimLatencyNanos = new Histogram();
+    private final Histogram testSetNanos = new Histogram();
+    private final Histogram findSetsNanos = new Histogram();
+    private final Histogram reshuffleNanos = new Histogram();
+    private final Histogram deadBoardMillis = new Histogram();
+    private final Histogram keyQueueOccupancy = new Histogram();
+    private final Histogram frozenMillis = new Histogram();
+    private final Histogram slotLockBlockedNanos = new Histogram();
+
+    @Override
+    public void claimQueued(int depth) {
+        claimQueueDepth.record(depth);
+    }
+
+    @Override
+    public void claimChecked(long latencyNanos, boolean stale) {
+        claims.increment();
+        if (stale)
+            staleClaims.increment();
+        claimLatencyNanos.record(latencyNanos);
+    }
+
+    @Override
+    public void setTested(long nanos) {
+        testSetNanos.record(nanos);
+    }
+
+    @Override
+    public void setsSearched(long nanos) {
+        findSetsNanos.record(nanos);
+    }
+
+    @Override
+    public void reshuffled(long nanos) {
+        reshuffleNanos.record(nanos);
+    }
+
+    @Override
+    public void deadBoard(long millis) {
+        deadBoardMillis.record(millis);
+    }
+
+    @Override
+    public void keyPressTaken(int queued) {
+        keyQueueOccupancy.record(queued);
+    }
+
+    @Override
+    public void frozen(long millis) {
+        frozenMillis.record(millis);
+    }
+
+    @Override
+    public void slotLockBlocked(long nanos) {
+        slotLockBlockedNanos.record(nanos);
+    }
+
+    /**
+     * @return - the current values of all the metrics, by name: the counters, and the count, mean, 50th, 90th, 99th
+     *           and 99.9th percentiles and maximum of each histogram (e.g. claimLatencyNanos.p99).
+     */
+    public Map<String, Long> snapshot() {
+        Map<String, Long> metrics = new LinkedHashMap<>();
+        metrics.put("claims", claims.sum());
+        metrics.put("staleClaims", staleClaims.sum());
+        put(metrics, "claimQueueDepth", claimQueueDepth);
+        put(metrics, "claimLatencyNanos", claimLatencyNanos);
+        put(metrics, "testSetNanos", testSetNanos);
+        put(metrics, "findSetsNanos", findSetsNanos);
+        put(metrics, "reshuffleNanos", reshuffleNanos);
+        put(metrics, "deadBoardMillis", deadBoardMillis);
+        put(metrics, "keyQueueOccupancy", keyQueueOccupancy);
+        put(metrics, "frozenMillis", frozenMillis);
+        put(metrics, "slotLockBlockedNanos", slotLockBlockedNanos);
+        return metrics;
+    }
+
+    private static void put(Map<String, Long> metrics, String name, Histogram histogram) {
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        metrics.put(name + ".count", snapshot.count);
+        metrics.put(name + ".mean", snapshot.mean());
+        metrics.put(name + ".p50", snapshot.percentile(50));
+        metrics.put(name + ".p90", snapshot.percentile(90));
+        metrics.put(name + ".p99", snapshot.percentile(99));
+        metrics.put(name + ".p999", snapshot.percentile(99.9));
+        metrics.put(name + ".max", snapshot.max);
+    }
+
+    @Override
+    public Map<String, Long> getMetrics() {
+        return snapshot();
+    }
+
+    /**
+     * Writes a snapshot of the metrics to a file, one "name=value" line per metric (the file is replaced at once, so
+     * that a reader never sees half of a snapshot).
+     *
+     * @throws IOException - if the file cannot be written.
+     */
+    public void writeTo(Path file) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(temporary))) {
+            out.println("# game metrics at " + Instant.now());
+            snapshot().forEach((name, value) -> out.println(name + "=" + value));
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Registers the recorder with the platform MBean server (replacing the one registered before, if any).
+     *
+     * @throws IllegalStateException - if the recorder cannot be registered.
+     */
+    public void registerMBean() {
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (ManagementFactory.getPlatformMBeanServer().isRegistered(name))
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+        } catch (JMException e) {
+            throw new IllegalStateException("cannot register the game metrics MBean: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package bguspl.set;
+
+import java.util.Map;
+
+/**
+ * The management interface of a MetricsRecorder (registered as bguspl.set:type=GameMetrics).
+ */
+public interface MetricsRecorderMXBean {
+
+    /**
+     * @return - the current values of all the metrics, by name (see MetricsRecorder.snapshot).
+     */
+    Map<String, Long> getMetrics();
+}
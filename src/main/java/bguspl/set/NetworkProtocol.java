@@ -0,0 +1,142 @@
+package bguspl.set;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The binary protocol between the network server and remote players (all numbers are big endian).
+ *
+ * A client sends fixed size messages: JOIN (table: int, seat: short) once, to take the seat of a human player at a
+ * table (the seats of the computer players cannot be taken), and then KEY (slot: short) for every key press of that
+ * player.
+ *
+ * The server sends frames: a frame is its length (int) followed by events. An event is an opcode followed by its
+ * arguments, and corresponds to a UserInterface call (JOINED and REJECTED answer a JOIN). Right after JOINED the
+ * server sends the current state of the table, and then the changes to it, in batches.
+ */
+public final class NetworkProtocol {
+
+    private NetworkProtocol() {}
+
+    /*
+     * Client messages.
+     */
+    public static final byte JOIN = 1;
+    public static final byte KEY = 2;
+    public static final int JOIN_SIZE = 7;
+    public static final int KEY_SIZE = 3;
+
+    /*
+     * Server events.
+     */
+    public static final byte JOINED = 1;
+    public static final byte REJECTED = 2;
+    public static final byte PLACE_CARD = 3;
+    public static final byte REMOVE_CARD = 4;
+    public static final byte PLACE_TOKEN = 5;
+    public static final byte REMOVE_ALL_TOKENS = 6;
+    public static final byte REMOVE_SLOT_TOKENS = 7;
+    public static final byte REMOVE_TOKEN = 8;
+    public static final byte COUNTDOWN = 9;
+    public static final byte ELAPSED = 10;
+    public static final byte FREEZE = 11;
+    public static final byte SCORE = 12;
+    public static final byte WINNERS = 13;
+
+    /**
+     * The size of the length prefix of a frame.
+     */
+    public static final int FRAME_HEADER_SIZE = 4;
+
+    /**
+     * @return - a JOIN message, ready to be written.
+     */
+    public static ByteBuffer join(int table, int seat) {
+        ByteBuffer message = ByteBuffer.allocate(JOIN_SIZE);
+        message.put(JOIN).putInt(table).putShort((short) seat).flip();
+        return message;
+    }
+
+    /**
+     * @return - a KEY message, ready to be written.
+     */
+    public static ByteBuffer key(int slot) {
+        ByteBuffer message = ByteBuffer.allocate(KEY_SIZE);
+        message.put(KEY).putShort((short) slot).flip();
+        return message;
+    }
+
+    /**
+     * Decodes the events of a frame (without its length prefix) into calls of a user interface.
+     *
+     * @param events - the events, from the position to the limit of the buffer.
+     * @param ui     - the user interface to call.
+     * @return - the seat given by a JOINED event of the frame, -1 if the frame has a REJECTED event, -2 otherwise.
+     * @throws IllegalArgumentException - if the frame has an unknown event.
+     */
+    public static int decode(ByteBuffer events, UserInterface ui) {
+        int joined = -2;
+        while (events.hasRemaining()) {
+            byte event = events.get();
+            switch (event) {
+                case JOINED:
+                    joined = events.getShort();
+                    break;
+                case REJECTED:
+                    joined = -1;
+                    break;
+                case PLACE_CARD: {
+                    int card = events.getShort();
+                    ui.placeCard(card, events.getShort());
+                    break;
+                }
+                case REMOVE_CARD:
+                    ui.removeCard(events.getShort());
+                    break;
+                case PLACE_TOKEN: {
+                    int player = events.getShort();
+                    ui.placeToken(player, events.getShort());
+                    break;
+                }
+                case REMOVE_ALL_TOKENS:
+                    ui.removeTokens();
+                    break;
+                case REMOVE_SLOT_TOKENS:
+                    ui.removeTokens(events.getShort());
+                    break;
+                case REMOVE_TOKEN: {
+                    int player = events.getShort();
+                    ui.removeToken(player, events.getShort());
+                    break;
+                }
+                case COUNTDOWN: {
+                    int millies = events.getInt();
+                    ui.setCountdown(millies, events.get() != 0);
+                    break;
+                }
+                case ELAPSED:
+                    ui.setElapsed(events.getInt());
+                    break;
+                case FREEZE: {
+                    int player = events.getShort();
+                    ui.setFreeze(player, events.getInt());
+                    break;
+                }
+                case SCORE: {
+                    int player = events.getShort();
+                    ui.setScore(player, events.getInt());
+                    break;
+                }
+                case WINNERS: {
+                    int[] players = new int[events.getShort()];
+                    for (int i = 0; i < players.length; i++)
+                        players[i] = events.getShort();
+                    ui.announceWinner(players);
+                    break;
+                }
+                default:
+                    throw new IllegalArgumentException("unknown event " + event);
+            }
+        }
+        return joined;
+    }
+}
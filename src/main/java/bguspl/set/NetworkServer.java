@@ -0,0 +1,409 @@
+package bguspl.set;
+
+import bguspl.set.ex.Player;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.logging.Logger;
+
+import static bguspl.set.NetworkProtocol.*;
+
+/**
+ * Lets remote players play at tables over the network (see NetworkProtocol).
+ * A few I/O threads serve all the connections, each one with its own selector: the first one also accepts the
+ * connections and hands them out to all the threads in turn. Each table is flushed (see UserInterfaceNetwork) by one
+ * of the I/O threads, every FLUSH_INTERVAL_MILLIS milliseconds.
+ * The key presses of a remote player are dropped (instead of blocking an I/O thread) while its queue of key presses is
+ * full, and a connection that does not keep up with the frames of its table is closed.
+ */
+public class NetworkServer implements AutoCloseable {
+
+    private static final long FLUSH_INTERVAL_MILLIS = 10;
+
+    /**
+     * The maximal number of frames waiting to be written to a connection.
+     */
+    private static final int MAX_PENDING_FRAMES = 1024;
+
+    private final Logger logger;
+    private final Config config;
+    private final ServerSocketChannel server;
+    private final IoThread[] ioThreads;
+    private final AtomicInteger nextIoThread = new AtomicInteger();
+    private final Map<Integer, RemoteTable> tables = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+
+    /**
+     * @param logger    - the logger.
+     * @param config    - the configuration of the games.
+     * @param address   - the address to listen on (port 0 for any free port).
+     * @param ioThreads - the number of I/O threads.
+     * @throws IOException - if the server cannot listen on the address.
+     */
+    public NetworkServer(Logger logger, Config config, InetSocketAddress address, int ioThreads) throws IOException {
+        if (ioThreads < 1)
+            throw new IllegalArgumentException("the number of I/O threads must be positive: " + ioThreads);
+        this.logger = logger;
+        this.config = config;
+        this.server = ServerSocketChannel.open();
+        this.ioThreads = new IoThread[ioThreads];
+        try {
+            server.bind(address);
+            server.configureBlocking(false);
+            for (int i = 0; i < ioThreads; i++)
+                this.ioThreads[i] = new IoThread(i);
+            server.register(this.ioThreads[0].selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Starts serving the connections.
+     */
+    public void start() {
+        for (IoThread ioThread : ioThreads)
+            ioThread.thread.start();
+        logger.info("network server listening on port " + port() + " with " + ioThreads.length + " I/O threads.");
+    }
+
+    /**
+     * @return - the port the server listens on.
+     */
+    public int port() {
+        return server.socket().getLocalPort();
+    }
+
+    /**
+     * @return - the number of seats remote players can take at a table: the seats of the human players (the computer
+     * players are played by the server, as GameHost creates them).
+     */
+    int humanSeats() {
+        return config.simulation ? 0 : config.humanPlayers;
+    }
+
+    /**
+     * Lets remote players play at a table.
+     *
+     * @param table   - the id of the table (sent by the players in JOIN).
+     * @param ui      - the user interface of the game at the table.
+     * @param players - the players of the game, by id (e.g. GameHost.Game::player).
+     */
+    public void addTable(int table, UserInterfaceNetwork ui, IntFunction<Player> players) {
+        RemoteTable remote = new RemoteTable(ui, players, ioThreads[Math.floorMod(table, ioThreads.length)]);
+        if (tables.putIfAbsent(table, remote) != null)
+            throw new IllegalArgumentException("table " + table + " already exists");
+        remote.flusher.tables.add(remote);
+    }
+
+    /**
+     * Closes the connections of a table (e.g. after its game ended).
+     */
+    public void removeTable(int table) {
+        RemoteTable remote = tables.remove(table);
+        if (remote == null)
+            return;
+        remote.flusher.tables.remove(remote);
+        remote.ui.flush();
+        for (int seat = 0; seat < config.players; seat++) {
+            Connection connection = remote.seats.get(seat);
+            if (connection != null)
+                connection.owner.execute(connection::closeAfterWrite);
+        }
+    }
+
+    /**
+     * Closes the server and all its connections.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            server.close();
+        } catch (IOException e) {
+            logger.warning("error closing the network server: " + e.getMessage());
+        }
+        for (IoThread ioThread : ioThreads) {
+            if (ioThread == null)
+                continue;
+            if (ioThread.thread.getState() == Thread.State.NEW) try {
+                ioThread.selector.close();
+            } catch (IOException ignored) {
+            } else if (ioThread.thread != Thread.currentThread()) try {
+                ioThread.selector.wakeup();
+                ioThread.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * A table and its remote players.
+     */
+    private class RemoteTable {
+
+        final UserInterfaceNetwork ui;
+        final IntFunction<Player> players;
+        final IoThread flusher;
+
+        /**
+         * The connection of each seat (null if the seat is free).
+         */
+        final AtomicReferenceArray<Connection> seats = new AtomicReferenceArray<>(config.players);
+
+        RemoteTable(UserInterfaceNetwork ui, IntFunction<Player> players, IoThread flusher) {
+            this.ui = ui;
+            this.players = players;
+            this.flusher = flusher;
+        }
+    }
+
+    /**
+     * An I/O thread: serves its connections, and flushes its tables.
+     */
+    private class IoThread implements Runnable {
+
+        final Selector selector;
+        final Thread thread;
+
+        /**
+         * Tasks to run on this thread (e.g. registering a new connection, or writing a frame).
+         */
+        final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        final Queue<RemoteTable> tables = new ConcurrentLinkedQueue<>();
+
+        IoThread(int id) throws IOException {
+            selector = Selector.open();
+            thread = new Thread(this, "network-io-" + id);
+            thread.setDaemon(true);
+        }
+
+        void execute(Runnable task) {
+            tasks.add(task);
+            if (Thread.currentThread() != thread)
+                selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            long nextFlush = System.currentTimeMillis() + FLUSH_INTERVAL_MILLIS;
+            try {
+                while (!closed) {
+                    selector.select(Math.max(1, nextFlush - System.currentTimeMillis()));
+                    for (Runnable task = tasks.poll(); task != null; task = tasks.poll())
+                        task.run();
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        if (!key.isValid())
+                            continue;
+                        if (key.isAcceptable())
+                            accept();
+                        else
+                            ((Connection) key.attachment()).ready(key);
+                    }
+                    if (System.currentTimeMillis() >= nextFlush) {
+                        for (RemoteTable table : tables)
+                            table.ui.flush();
+                        nextFlush = System.currentTimeMillis() + FLUSH_INTERVAL_MILLIS;
+                    }
+                }
+            } catch (IOException | ClosedSelectorException e) {
+                if (!closed)
+                    logger.severe("network I/O thread failed: " + e);
+            } finally {
+                for (SelectionKey key : selector.keys())
+                    if (key.attachment() instanceof Connection)
+                        ((Connection) key.attachment()).close();
+                try {
+                    selector.close();
+                } catch (IOException ignored) {}
+            }
+        }
+
+        private void accept() throws IOException {
+            SocketChannel channel;
+            while ((channel = server.accept()) != null) {
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                IoThread owner = ioThreads[Math.floorMod(nextIoThread.getAndIncrement(), ioThreads.length)];
+                Connection connection = new Connection(channel, owner);
+                owner.execute(connection::register);
+            }
+        }
+    }
+
+    /**
+     * A connection of a remote player. All its I/O is done by its owner I/O thread.
+     */
+    private class Connection implements Consumer<ByteBuffer> {
+
+        final SocketChannel channel;
+        final IoThread owner;
+        final ByteBuffer in = ByteBuffer.allocate(64);
+        final Queue<ByteBuffer> out = new ArrayDeque<>();
+        SelectionKey key;
+
+        /**
+         * The number of frames given to the connection and not written yet (frames are given by other threads).
+         */
+        final AtomicInteger pending = new AtomicInteger();
+
+        RemoteTable table;
+        int seat = -1;
+        boolean closeAfterWrite;
+
+        Connection(SocketChannel channel, IoThread owner) {
+            this.channel = channel;
+            this.owner = owner;
+        }
+
+        void register() {
+            try {
+                key = channel.register(owner.selector, SelectionKey.OP_READ, this);
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        /**
+         * Called with a frame of the table of the connection.
+         */
+        @Override
+        public void accept(ByteBuffer frame) {
+            if (pending.incrementAndGet() > MAX_PENDING_FRAMES) {
+                owner.execute(() -> {
+                    if (channel.isOpen())
+                        logger.warning("closing the connection of player " + seat + ": too many frames waiting to be written");
+                    close();
+                });
+                return;
+            }
+            owner.execute(() -> write(frame));
+        }
+
+        private void write(ByteBuffer frame) {
+            pending.decrementAndGet();
+            if (!channel.isOpen())
+                return;
+            out.add(frame);
+            flushOut();
+        }
+
+        void closeAfterWrite() {
+            closeAfterWrite = true;
+            flushOut();
+        }
+
+        private void flushOut() {
+            try {
+                while (!out.isEmpty()) {
+                    channel.write(out.peek());
+                    if (out.peek().hasRemaining())
+                        break;
+                    out.remove();
+                }
+            } catch (IOException e) {
+                close();
+                return;
+            }
+            if (out.isEmpty() && closeAfterWrite)
+                close();
+            else if (key != null && key.isValid())
+                key.interestOps(out.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+
+        void ready(SelectionKey key) {
+            if (key.isWritable())
+                flushOut();
+            if (key.isValid() && key.isReadable())
+                read();
+        }
+
+        private void read() {
+            int read;
+            try {
+                read = channel.read(in);
+            } catch (IOException e) {
+                read = -1;
+            }
+            if (read < 0) {
+                close();
+                return;
+            }
+            in.flip();
+            while (in.hasRemaining() && channel.isOpen()) {
+                byte message = in.get(in.position());
+                int size = message == JOIN ? JOIN_SIZE : message == KEY ? KEY_SIZE : 0;
+                if (size == 0) {
+                    logger.warning("closing a connection that sent an unknown message " + message);
+                    close();
+                    break;
+                }
+                if (in.remaining() < size)
+                    break;
+                in.get();
+                if (message == JOIN)
+                    join(in.getInt(), in.getShort());
+                else
+                    keyPressed(in.getShort());
+            }
+            in.compact();
+        }
+
+        private void join(int tableId, int seat) {
+            RemoteTable table = tables.get(tableId);
+            if (this.table != null || table == null || seat < 0 || seat >= humanSeats() || !table.seats.compareAndSet(seat, null, this)) {
+                ByteBuffer rejected = ByteBuffer.allocate(FRAME_HEADER_SIZE + 1);
+                rejected.putInt(1).put(REJECTED).flip();
+                out.add(rejected);
+                flushOut();
+                return;
+            }
+            this.table = table;
+            this.seat = seat;
+            ByteBuffer joined = ByteBuffer.allocate(3);
+            joined.put(JOINED).putShort((short) seat).flip();
+            table.ui.subscribe(this, joined);
+        }
+
+        private void keyPressed(int slot) {
+            if (table == null || slot < 0 || slot >= config.tableSize)
+                return;
+            table.players.apply(seat).offerKeyPress(slot);
+        }
+
+        void close() {
+            if (table != null) {
+                table.ui.unsubscribe(this);
+                table.seats.compareAndSet(seat, this, null);
+                table = null;
+            }
+            if (key != null)
+                key.cancel();
+            try {
+                channel.close();
+            } catch (IOException ignored) {}
+        }
+    }
+}
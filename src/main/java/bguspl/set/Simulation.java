@@ -0,0 +1,112 @@
+package bguspl.set;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs headless games of computer players as fast as possible, config.simulationThreads games at a time (on a
+ * GameHost), and reports the throughput and the results.
+ */
+public class Simulation {
+
+    /**
+     * The number of games between progress reports.
+     */
+    private static final int REPORT_INTERVAL = 100;
+
+    private final Logger logger;
+    private final Config config;
+
+    /**
+     * The logger used by the games themselves (silent, so that logging does not dominate the simulation).
+     */
+    private final Logger gameLogger;
+
+    /**
+     * The total score and the number of won games (including draws) of each player, over all games played.
+     */
+    private final long[] totalScores;
+    private final long[] wins;
+
+    public Simulation(Logger logger, Config config) {
+        this.logger = logger;
+        this.config = config;
+        gameLogger = Logger.getAnonymousLogger();
+        gameLogger.setUseParentHandlers(false);
+        gameLogger.setLevel(Level.OFF);
+        totalScores = new long[config.players];
+        wins = new long[config.players];
+    }
+
+    /**
+     * Runs config.simulationGames games.
+     */
+    public void run() throws InterruptedException {
+        run(GameMetrics.NONE);
+    }
+
+    /**
+     * Runs config.simulationGames games.
+     *
+     * @param metrics - the metrics of the games.
+     */
+    public void run(GameMetrics metrics) throws InterruptedException {
+        logger.severe("starting simulation of " + config.simulationGames + " games with " + config.players + " computer players"
+                + " on " + config.simulationThreads + " threads.");
+        GameHost host = new GameHost(gameLogger, config, config.simulationThreads, metrics);
+        // keep a few games waiting for each dealer thread, instead of creating all of them up front
+        Deque<GameHost.Game> games = new ArrayDeque<>();
+        int played = 0;
+        try {
+            for (int game = 1; game <= config.simulationGames; ++game) {
+                if (games.size() == 2 * config.simulationThreads)
+                    played = collect(games.remove(), played, host);
+                games.add(host.start());
+            }
+            while (!games.isEmpty())
+                played = collect(games.remove(), played, host);
+        } finally {
+            host.terminate();
+            host.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+    /**
+     * Waits for a game to finish and adds its results to the totals.
+     *
+     * @return - the number of games played so far.
+     */
+    private int collect(GameHost.Game game, int played, GameHost host) throws InterruptedException {
+        int[] scores;
+        try {
+            scores = game.await();
+        } catch (ExecutionException e) {
+            logger.severe("simulated game " + game.id + " failed: " + e.getCause());
+            return played;
+        }
+        int maxScore = Arrays.stream(scores).max().orElse(0);
+        for (int i = 0; i < scores.length; i++) {
+            totalScores[i] += scores[i];
+            if (scores[i] == maxScore) ++wins[i];
+        }
+        ++played;
+        if (played % REPORT_INTERVAL == 0 || played == config.simulationGames)
+            report(played, host.stats());
+        return played;
+    }
+
+    private void report(int games, GameHost.Stats stats) {
+        double seconds = stats.elapsedNanos / 1e9;
+        StringBuilder sb = new StringBuilder()
+                .append(String.format("simulation: %d games in %.2f seconds (%.2f games per second).", games, seconds, games / seconds));
+        for (int i = 0; i < config.players; ++i)
+            sb.append(String.format(" %s: %.2f points per game, %d wins;", config.playerNames[i], (double) totalScores[i] / games, wins[i]));
+        logger.severe(sb.toString());
+        System.out.println(sb);
+    }
+}
@@ -2,23 +2,39 @@ package bguspl.set;
 
 import java.util.logging.Logger;
 
-public class ThreadLogger extends Thread {
+/**
+ * A thread that logs when it starts and when it is joined.
+ */
+public class ThreadLogger {
 
+    final Thread thread;
     final Logger logger;
 
     public ThreadLogger(Runnable target, String name, Logger logger) {
-        super(target, name);
+        this(new Thread(target, name), logger);
+    }
+
+    /**
+     * @param thread - the (unstarted) thread.
+     * @param logger - the logger.
+     */
+    public ThreadLogger(Thread thread, Logger logger) {
+        this.thread = thread;
         this.logger = logger;
     }
 
+    public String getName() {
+        return thread.getName();
+    }
+
     public void startWithLog() {
         logStart(logger, getName());
-        super.start();
+        thread.start();
     }
 
     public void joinWithLog() throws InterruptedException {
         try {
-            join();
+            thread.join();
         } finally {
             logStop(logger, getName());
         }
@@ -0,0 +1,219 @@
+package bguspl.set;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static bguspl.set.NetworkProtocol.*;
+
+/**
+ * A user interface that sends the changes to a table to remote players (see NetworkProtocol).
+ * The changes are collected into a batch, and flush() sends the batch as one frame to every subscriber. Of the
+ * countdown, the elapsed time and the freeze times, only the last value in each batch is sent.
+ * The user interface also keeps the state of the table, so that a player who joins gets the current state first.
+ */
+public class UserInterfaceNetwork implements UserInterface {
+
+    private static final int INITIAL_BATCH_SIZE = 256;
+
+    /**
+     * The state of the table: the card in each slot (-1 if empty), the players with a token in each slot, the scores
+     * and the winners (null until announced).
+     */
+    private final int[] cards;
+    private final BitSet[] tokens;
+    private final int[] scores;
+    private int[] winners;
+
+    /**
+     * The last countdown, elapsed time and freeze times, and whether they changed since the last flush.
+     */
+    private long countdown;
+    private boolean warn;
+    private boolean countdownChanged;
+    private long elapsed;
+    private boolean elapsedChanged;
+    private final long[] freezes;
+    private final BitSet freezesChanged;
+
+    /**
+     * The events since the last flush, after room for the frame header.
+     */
+    private ByteBuffer batch;
+
+    private final List<Consumer<ByteBuffer>> subscribers = new ArrayList<>();
+
+    public UserInterfaceNetwork(Config config) {
+        cards = new int[config.tableSize];
+        Arrays.fill(cards, -1);
+        tokens = new BitSet[config.tableSize];
+        for (int slot = 0; slot < tokens.length; slot++)
+            tokens[slot] = new BitSet(config.players);
+        scores = new int[config.players];
+        freezes = new long[config.players];
+        freezesChanged = new BitSet(config.players);
+        batch = newBatch(INITIAL_BATCH_SIZE);
+    }
+
+    private static ByteBuffer newBatch(int capacity) {
+        ByteBuffer buffer = ByteBuffer.allocate(capacity);
+        buffer.position(FRAME_HEADER_SIZE);
+        return buffer;
+    }
+
+    /**
+     * Makes room for an event in the batch.
+     */
+    private ByteBuffer event(byte event, int size) {
+        if (batch.remaining() < 1 + size) {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(2 * batch.capacity(), batch.position() + 1 + size));
+            batch.flip();
+            bigger.put(batch);
+            batch = bigger;
+        }
+        return batch.put(event);
+    }
+
+    private static int toInt(long millies) {
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, millies));
+    }
+
+    @Override
+    public synchronized void placeCard(int card, int slot) {
+        cards[slot] = card;
+        event(PLACE_CARD, 4).putShort((short) card).putShort((short) slot);
+    }
+
+    @Override
+    public synchronized void removeCard(int slot) {
+        cards[slot] = -1;
+        event(REMOVE_CARD, 2).putShort((short) slot);
+    }
+
+    @Override
+    public synchronized void placeToken(int player, int slot) {
+        tokens[slot].set(player);
+        event(PLACE_TOKEN, 4).putShort((short) player).putShort((short) slot);
+    }
+
+    @Override
+    public synchronized void removeTokens() {
+        for (BitSet slotTokens : tokens)
+            slotTokens.clear();
+        event(REMOVE_ALL_TOKENS, 0);
+    }
+
+    @Override
+    public synchronized void removeTokens(int slot) {
+        tokens[slot].clear();
+        event(REMOVE_SLOT_TOKENS, 2).putShort((short) slot);
+    }
+
+    @Override
+    public synchronized void removeToken(int player, int slot) {
+        tokens[slot].clear(player);
+        event(REMOVE_TOKEN, 4).putShort((short) player).putShort((short) slot);
+    }
+
+    @Override
+    public synchronized void setCountdown(long millies, boolean warn) {
+        countdown = millies;
+        this.warn = warn;
+        countdownChanged = true;
+    }
+
+    @Override
+    public synchronized void setElapsed(long millies) {
+        elapsed = millies;
+        elapsedChanged = true;
+    }
+
+    @Override
+    public synchronized void setFreeze(int player, long millies) {
+        freezes[player] = millies;
+        freezesChanged.set(player);
+    }
+
+    @Override
+    public synchronized void setScore(int player, int score) {
+        scores[player] = score;
+        event(SCORE, 6).putShort((short) player).putInt(score);
+    }
+
+    @Override
+    public synchronized void announceWinner(int[] players) {
+        winners = players.clone();
+        putWinners(event(WINNERS, 2 + 2 * players.length), players);
+    }
+
+    private static void putWinners(ByteBuffer buffer, int[] players) {
+        buffer.putShort((short) players.length);
+        for (int player : players)
+            buffer.putShort((short) player);
+    }
+
+    @Override
+    public void dispose() {}
+
+    /**
+     * Sends the changes since the last flush, as one frame, to all the subscribers.
+     */
+    public synchronized void flush() {
+        if (countdownChanged)
+            event(COUNTDOWN, 5).putInt(toInt(countdown)).put((byte) (warn ? 1 : 0));
+        if (elapsedChanged)
+            event(ELAPSED, 4).putInt(toInt(elapsed));
+        for (int player = freezesChanged.nextSetBit(0); player >= 0; player = freezesChanged.nextSetBit(player + 1))
+            event(FREEZE, 6).putShort((short) player).putInt(toInt(freezes[player]));
+        countdownChanged = elapsedChanged = false;
+        freezesChanged.clear();
+
+        if (batch.position() == FRAME_HEADER_SIZE)
+            return;
+        ByteBuffer frame = batch.flip().putInt(0, batch.limit() - FRAME_HEADER_SIZE).asReadOnlyBuffer();
+        for (Consumer<ByteBuffer> subscriber : subscribers)
+            subscriber.accept(frame.duplicate());
+        batch = newBatch(Math.max(INITIAL_BATCH_SIZE, batch.capacity() / 2));
+    }
+
+    /**
+     * Subscribes to the changes of the table.
+     *
+     * @param subscriber - receives the frames of the table (each one is its own buffer, positioned at the frame header).
+     * @param first      - the events to send in the first frame, before the state of the table (e.g. JOINED).
+     */
+    public synchronized void subscribe(Consumer<ByteBuffer> subscriber, ByteBuffer first) {
+        flush(); // the pending changes are part of the state sent to the subscriber
+        ByteBuffer current = batch;
+        batch = newBatch(INITIAL_BATCH_SIZE);
+        event(first.get(), first.remaining());
+        batch.put(first);
+        for (int slot = 0; slot < cards.length; slot++) {
+            if (cards[slot] >= 0)
+                event(PLACE_CARD, 4).putShort((short) cards[slot]).putShort((short) slot);
+            for (int player = tokens[slot].nextSetBit(0); player >= 0; player = tokens[slot].nextSetBit(player + 1))
+                event(PLACE_TOKEN, 4).putShort((short) player).putShort((short) slot);
+        }
+        for (int player = 0; player < scores.length; player++) {
+            event(SCORE, 6).putShort((short) player).putInt(scores[player]);
+            if (freezes[player] > 0)
+                event(FREEZE, 6).putShort((short) player).putInt(toInt(freezes[player]));
+        }
+        event(COUNTDOWN, 5).putInt(toInt(countdown)).put((byte) (warn ? 1 : 0));
+        if (winners != null)
+            putWinners(event(WINNERS, 2 + 2 * winners.length), winners);
+        subscriber.accept(batch.flip().putInt(0, batch.limit() - FRAME_HEADER_SIZE));
+        batch = current;
+        subscribers.add(subscriber);
+    }
+
+    /**
+     * Stops sending the changes of the table to a subscriber.
+     */
+    public synchronized void unsubscribe(Consumer<ByteBuffer> subscriber) {
+        subscribers.remove(subscriber);
+    }
+}
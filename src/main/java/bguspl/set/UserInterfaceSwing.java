@@ -4,8 +4,7 @@ import bguspl.set.ex.Player;
 
 import javax.swing.*;
 import java.awt.*;
-import java.io.FileNotFoundException;
-import java.net.URL;
+import java.lang.reflect.InvocationTargetException;
 import java.util.Arrays;
 import java.util.List;
 import java.util.logging.Logger;
@@ -15,15 +14,31 @@ import static java.lang.String.format;
 
 /**
  * Java Swing implementation of the UserInterface interface.
+ * The UserInterface calls only record the changes (see FrameUpdates); a Swing timer applies them on the event dispatch
+ * thread once per frame, and repaints only the cells that changed.
  */
 public class UserInterfaceSwing extends JFrame implements UserInterface {
 
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The time between frames (about 60 frames per second).
+     */
+    private static final int FRAME_MILLIS = 16;
+
     private final TimerPanel timerPanel;
     private final GamePanel gamePanel;
     private final PlayersPanel playersPanel;
     private final WinnerPanel winnerPanel;
     private final Config config;
 
+    /**
+     * The changes recorded by the game threads, and the changes being applied by the event dispatch thread.
+     */
+    private final FrameUpdates pending;
+    private final FrameUpdates frame;
+    private final Timer frameTimer;
+
     static String intInBaseToPaddedString(int n, int padding, int base) {
         return format("%" + padding + "s", Integer.toString(n, base)).replace(' ', '0');
     }
@@ -31,8 +46,10 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
     public UserInterfaceSwing(Logger logger, Config config, Player[] players) {
 
         this.config = config;
+        pending = new FrameUpdates(config);
+        frame = new FrameUpdates(config);
         timerPanel = new TimerPanel();
-        gamePanel = new GamePanel();
+        gamePanel = new GamePanel(logger);
         playersPanel = new PlayersPanel();
         winnerPanel = new WinnerPanel();
 
@@ -66,11 +83,44 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
         addKeyListener(new InputManager(logger, config, players));
         addWindowListener(new WindowManager());
 
-        EventQueue.invokeLater(() -> setVisible(true));
+        frameTimer = new Timer(FRAME_MILLIS, e -> renderFrame());
+        frameTimer.setCoalesce(true);
+        EventQueue.invokeLater(() -> {
+            setVisible(true);
+            frameTimer.start();
+        });
+    }
+
+    /**
+     * Applies the changes since the last frame (on the event dispatch thread).
+     */
+    private void renderFrame() {
+        if (!pending.moveChangesTo(frame))
+            return;
+        for (int slot = frame.changedCards.nextSetBit(0); slot >= 0; slot = frame.changedCards.nextSetBit(slot + 1))
+            gamePanel.setCard(slot, frame.cards[slot]);
+        for (int slot = frame.changedTokens.nextSetBit(0); slot >= 0; slot = frame.changedTokens.nextSetBit(slot + 1))
+            gamePanel.setTokens(slot, frame.tokens[slot]);
+        if (frame.changedTimer) {
+            if (frame.timerElapsed) timerPanel.setElapsed(frame.timerMillies);
+            else timerPanel.setCountdown(frame.timerMillies, frame.timerWarn);
+        }
+        for (int player = frame.changedFreezes.nextSetBit(0); player >= 0; player = frame.changedFreezes.nextSetBit(player + 1))
+            playersPanel.setFreeze(player, frame.freezes[player]);
+        for (int player = frame.changedScores.nextSetBit(0); player >= 0; player = frame.changedScores.nextSetBit(player + 1))
+            playersPanel.setScore(player, frame.scores[player]);
+        if (frame.changedWinners) {
+            playersPanel.setVisible(false);
+            winnerPanel.announceWinner(frame.winners);
+            winnerPanel.setVisible(true);
+        }
+        frame.clearChanges();
     }
 
     private class TimerPanel extends JPanel {
 
+        private static final long serialVersionUID = 1L;
+
         private final JLabel timerField;
 
         private String generateTime(long millies, boolean warn) {
@@ -102,39 +152,26 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
 
     private class GamePanel extends JLayeredPane {
 
-        private final Image emptyCard;
-        private final Image[] deck;
-        private final Image[][] grid;
-        private final boolean[][][] playerTokens;
-        private final JLabel[][] tokenText;
+        private static final long serialVersionUID = 1L;
 
-        private Image loadImageResource(String filename) {
-            URL imageResource = getClass().getClassLoader().getResource(filename);
-            if (imageResource == null)
-                throw new RuntimeException(new FileNotFoundException(filename));
-            return new ImageIcon(imageResource).getImage();
-        }
+        private final CardAtlas atlas;
+        private final int[][] grid;
+        private final JLabel[][] tokenText;
 
-        private GamePanel() {
+        private GamePanel(Logger logger) {
 
             setPreferredSize(new Dimension(config.columns * config.cellWidth, config.rows * config.cellHeight));
 
-            // init deck and load all pictures from png files
-            assert config.featureSize < 10; // otherwise there will be naming conflicts
+            // the card images are loaded in the background: the cards are drawn once they are ready
+            atlas = CardAtlas.of(logger, config);
+            atlas.whenReady(() -> EventQueue.invokeLater(this::repaint));
 
-            // load the image resources
-            deck = new Image[config.deckSize];
-            for (int i = 0; i < config.deckSize; ++i)
-                deck[i] = loadImageResource("cards/" + intInBaseToPaddedString(i, config.featureCount, config.featureSize) + ".png");
-            emptyCard = loadImageResource("cards/empty_card.png");
-
-            grid = new Image[config.rows][config.columns];
+            grid = new int[config.rows][config.columns];
             tokenText = new JLabel[config.rows][config.columns];
-            playerTokens = new boolean[config.players][config.rows][config.columns];
             for (int row = 0; row < config.rows; row++) {
                 for (int column = 0; column < config.columns; column++) {
                     // init the cards on the table grid as empty cards
-                    grid[row][column] = emptyCard;
+                    grid[row][column] = -1;
 
                     // init the JLabel selection overlay
                     tokenText[row][column] = new JLabel("");
@@ -148,54 +185,27 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
             }
         }
 
-        private void placeCard(int slot, int card) {
+        /**
+         * Shows a card (or an empty card if card is -1) in a slot, and repaints the slot.
+         */
+        private void setCard(int slot, int card) {
             int row = slot / config.columns;
             int column = slot % config.columns;
-            grid[row][column] = deck[card];
-            validate();
-            repaint();
+            grid[row][column] = card;
+            repaint(column * config.cellWidth, row * config.cellHeight, config.cellWidth, config.cellHeight);
         }
 
-        private void removeCard(int slot) {
-            int row = slot / config.columns;
-            int column = slot % config.columns;
-            grid[row][column] = emptyCard;
-            validate();
-            repaint();
+        /**
+         * Shows the names of the players with a token in a slot.
+         */
+        private void setTokens(int slot, boolean[] players) {
+            tokenText[slot / config.columns][slot % config.columns].setText(generatePlayersTokenText(players));
         }
 
-        private void placeToken(int player, int slot) {
-            int row = slot / config.columns;
-            int column = slot % config.columns;
-            playerTokens[player][row][column] = true;
-            tokenText[row][column].setText(generatePlayersTokenText(row, column));
-        }
-
-        private void removeTokens() {
-            for (int i = 0; i < config.tableSize; i++)
-                removeTokens(i);
-        }
-
-        private void removeTokens(int slot) {
-            int row = slot / config.columns;
-            int column = slot % config.columns;
-            for (int player = 0; player < playerTokens.length; player++) {
-                playerTokens[player][row][column] = false;
-                tokenText[row][column].setText(generatePlayersTokenText(row, column));
-            }
-        }
-
-        private void removeToken(int player, int slot) {
-            int row = slot / config.columns;
-            int column = slot % config.columns;
-            playerTokens[player][row][column] = false;
-            tokenText[row][column].setText(generatePlayersTokenText(row, column));
-        }
-
-        private String generatePlayersTokenText(int row, int column) {
+        private String generatePlayersTokenText(boolean[] players) {
             String text = "";
             for (int player = 0; player < config.players; player++) {
-                if (playerTokens[player][row][column])
+                if (players[player])
                     text = text.concat(config.playerNames[player] + ", ");
             }
             if (text.length() < 2)
@@ -205,15 +215,19 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
 
         @Override
         public void paintComponent(Graphics g) {
-            // draw card images
+            // draw the card images of the cells to repaint
+            Rectangle clip = g.getClipBounds();
             for (int row = 0; row < config.rows; row++)
                 for (int column = 0; column < config.columns; column++)
-                    g.drawImage(grid[row][column], (column * config.cellWidth), (row * config.cellHeight), this);
+                    if (clip == null || clip.intersects(column * config.cellWidth, row * config.cellHeight, config.cellWidth, config.cellHeight))
+                        atlas.draw(g, grid[row][column], column * config.cellWidth, row * config.cellHeight);
         }
     }
 
     private class PlayersPanel extends JPanel {
 
+        private static final long serialVersionUID = 1L;
+
         private final JLabel[][] playersTable;
 
         private PlayersPanel() {
@@ -252,6 +266,8 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
 
     private class WinnerPanel extends JPanel {
 
+        private static final long serialVersionUID = 1L;
+
         private final JLabel winnerAnnouncement;
 
         public WinnerPanel() {
@@ -276,63 +292,74 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
 
     @Override
     public void placeCard(int card, int slot) {
-        gamePanel.placeCard(slot, card);
+        pending.placeCard(card, slot);
     }
 
     @Override
     public void removeCard(int slot) {
-        gamePanel.removeCard(slot);
+        pending.removeCard(slot);
     }
 
     @Override
     public void placeToken(int player, int slot) {
-        gamePanel.placeToken(player, slot);
+        pending.placeToken(player, slot);
     }
 
     @Override
     public void removeTokens() {
-        gamePanel.removeTokens();
+        pending.removeTokens();
     }
 
     @Override
     public void removeTokens(int slot) {
-        gamePanel.removeTokens(slot);
+        pending.removeTokens(slot);
     }
 
     @Override
     public void removeToken(int player, int slot) {
-        gamePanel.removeToken(player, slot);
+        pending.removeToken(player, slot);
     }
 
     @Override
     public void setCountdown(long millies, boolean warn) {
-        timerPanel.setCountdown(millies, warn);
+        pending.setCountdown(millies, warn);
     }
 
     @Override
     public void setElapsed(long millies) {
-        timerPanel.setElapsed(millies);
+        pending.setElapsed(millies);
     }
 
     @Override
     public void setFreeze(int player, long millies) {
-        playersPanel.setFreeze(player, millies);
+        pending.setFreeze(player, millies);
     }
 
     @Override
     public void setScore(int player, int score) {
-        playersPanel.setScore(player, score);
+        pending.setScore(player, score);
     }
 
     @Override
     public void announceWinner(int[] players) {
-        playersPanel.setVisible(false);
-        winnerPanel.announceWinner(players);
-        winnerPanel.setVisible(true);
+        pending.announceWinner(players);
     }
 
     @Override
     public void dispose() {
+        // the last changes (e.g. the winner) may not have been drawn yet: draw them before the frames stop
+        if (EventQueue.isDispatchThread())
+            renderLastFrame();
+        else try {
+            EventQueue.invokeAndWait(this::renderLastFrame);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (InvocationTargetException ignored) {}
         super.dispose();
     }
+
+    private void renderLastFrame() {
+        frameTimer.stop();
+        renderFrame();
+    }
 }
@@ -36,10 +36,21 @@ public interface Util {
      *
      * @param deck  - a collection of cards (may not include null objects).
      * @param count - the maximum number of sets to find.
-     * @return - a list of up to count integer arrays, each one contains the card ids of a legal set.
+     * @return - a list of up to count integer arrays, each one contains the card ids of a legal set (if there are
+     *           more than count sets, which of them are found is not specified).
      */
     List<int[]> findSets(List<Integer> deck, int count);
 
+    /**
+     * Computes the card that completes two given cards to a legal set. This is only defined when
+     * config.featureSize == 3, since then any two cards determine the third one.
+     *
+     * @param first  - the first card id.
+     * @param second - the second card id.
+     * @return - the id of the completing card, or -1 if config.featureSize != 3.
+     */
+    int thirdCard(int first, int second);
+
     /**
      * Spin a random number of times (for debugging/testing).
      */
@@ -1,10 +1,13 @@
 package bguspl.set;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 import java.util.concurrent.ThreadLocalRandom;
-import java.util.stream.IntStream;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * The implementation of the UserInterface interface.
@@ -13,15 +16,38 @@ public class UtilImpl implements Util {
 
     private final Config config;
 
+    /**
+     * The number of combinations findSets enumerates on a single thread: fewer are enumerated on the calling thread,
+     * and more are split between the threads of the common fork/join pool.
+     */
+    private static final double SEQUENTIAL_COMBINATIONS = 1 << 14;
+
+    /**
+     * The features of all the cards in the deck, decoded once: the features of card c are stored in
+     * features[c * featureCount] .. features[c * featureCount + featureCount - 1].
+     */
+    private final int[] features;
+
+    /**
+     * The value of a single unit of each feature in a card id (i.e. featureSize ^ (featureCount - 1 - i)).
+     */
+    private final int[] featureWeights;
+
     public UtilImpl(Config config) {
         this.config = config;
+        features = new int[config.deckSize * config.featureCount];
+        for (int card = 0; card < config.deckSize; ++card)
+            for (int i = config.featureCount - 1, value = card; i >= 0; --i) {
+                features[card * config.featureCount + i] = value % config.featureSize;
+                value /= config.featureSize;
+            }
+        featureWeights = new int[config.featureCount];
+        for (int i = config.featureCount - 1, weight = 1; i >= 0; --i, weight *= config.featureSize)
+            featureWeights[i] = weight;
     }
 
     private void cardToFeatures(int card, int[] features) {
-        for (int i = config.featureCount - 1; i >= 0; --i) {
-            features[i] = card % config.featureSize;
-            card /= config.featureSize;
-        }
+        System.arraycopy(this.features, card * config.featureCount, features, 0, config.featureCount);
     }
 
     @Override
@@ -34,31 +60,41 @@ public class UtilImpl implements Util {
     @Override
     public int[][] cardsToFeatures(int[] cards) {
         int[][] features = new int[cards.length][config.featureCount];
-        IntStream.range(0, cards.length).forEach(i -> cardToFeatures(cards[i], features[i]));
+        for (int i = 0; i < cards.length; ++i)
+            cardToFeatures(cards[i], features[i]);
         return features;
     }
 
     @Override
     public boolean testSet(int[] cards) {
-        int[][] features = cardsToFeatures(Arrays.copyOf(cards, cards.length));
-        for (int i = 0; i < config.featureCount; ++i) {
-            boolean sameSame = true, butDifferent = true;
-
-            // check if this features is sameSame in all cards
-            for (int j = 1; j < features.length; ++j)
-                if (features[0][i] != features[j][i]) {
-                    sameSame = false;
-                    break;
-                }
+        if (config.featureSize > Long.SIZE)
+            return testSetPairwise(cards);
+        int featureCount = config.featureCount;
+        for (int i = 0; i < featureCount; ++i) {
+            // collect the distinct values of this feature as a bitmask
+            long values = 0;
+            for (int card : cards)
+                values |= 1L << features[card * featureCount + i];
+            int distinct = Long.bitCount(values);
+            boolean sameSame = distinct == 1, butDifferent = distinct == cards.length;
+            if (sameSame == butDifferent) return false;
+        }
+        return true;
+    }
 
-            // check if this feature is butDifferent in all cards
-            for (int j = 1; j < features.length; ++j)
-                for (int k = j; k < features.length; ++k)
-                    if (features[j - 1][i] == features[k][i]) {
+    /**
+     * Same as testSet, for feature values that do not fit in a bitmask.
+     */
+    private boolean testSetPairwise(int[] cards) {
+        int featureCount = config.featureCount;
+        for (int i = 0; i < featureCount; ++i) {
+            boolean sameSame = true, butDifferent = true;
+            for (int j = 0; j < cards.length; ++j)
+                for (int k = j + 1; k < cards.length; ++k)
+                    if (features[cards[j] * featureCount + i] == features[cards[k] * featureCount + i])
                         butDifferent = false;
-                        break;
-                    }
-
+                    else
+                        sameSame = false;
             if (sameSame == butDifferent) return false;
         }
         return true;
@@ -66,28 +102,448 @@ public class UtilImpl implements Util {
 
     @Override
     public List<int[]> findSets(List<Integer> deck, int count) {
-        LinkedList<int[]> sets = new LinkedList<>();
+        if (config.featureSize == 3)
+            return findSetsByThirdCard(deck, count);
+        if (config.featureSize >= 4 && config.featureSize <= Long.SIZE)
+            return findSetsByCompletion(deck, count);
+        return findSetsByCombination(deck, count);
+    }
+
+    @Override
+    public int thirdCard(int first, int second) {
+        if (config.featureSize != 3) return -1;
+        int featureCount = config.featureCount;
+        int third = 0;
+        for (int i = 0; i < featureCount; ++i) {
+            // the third value is the one making the sum of the feature divisible by 3
+            int sum = features[first * featureCount + i] + features[second * featureCount + i];
+            third += ((6 - sum) % 3) * featureWeights[i];
+        }
+        return third;
+    }
+
+    /**
+     * Finds sets by going over every pair of cards and looking up the single card that completes it.
+     * Sets are reported in the same order as the combination enumeration would report them. Large decks are split
+     * between threads by the position of the first card of the pairs, like findSetsByCompletion does, with the same
+     * exception when there are more than count sets.
+     */
+    private List<int[]> findSetsByThirdCard(List<Integer> deck, int count) {
         int n = deck.size();
+        int[] cards = new int[n];
+        int[] position = new int[config.deckSize]; // index of each card in the deck, -1 if not present
+        Arrays.fill(position, -1);
+        for (int i = 0; i < n; ++i) {
+            cards[i] = deck.get(i);
+            position[cards[i]] = i;
+        }
+        if (n < 3 || count <= 0)
+            return new LinkedList<>();
+        ThirdCardTask all = new ThirdCardTask(cards, position, count, new AtomicInteger(), 0, n - 2);
+        if (combinations(n, 2) <= SEQUENTIAL_COMBINATIONS)
+            return all.compute();
+        return ForkJoinPool.commonPool().invoke(all);
+    }
+
+    /**
+     * Finds sets by testing every combination of featureSize cards, in lexicographic order of their positions in the
+     * deck. Large decks are split between threads by the first positions of the combinations, and the sets found by
+     * the parts are concatenated in order, so that the sets are the same as (and in the order of) a sequential
+     * enumeration, unless there are more than count of them: then all the threads stop once count sets are found, and
+     * these are not necessarily the first count sets of the enumeration.
+     */
+    private List<int[]> findSetsByCombination(List<Integer> deck, int count) {
+        int[] cards = deck.stream().mapToInt(Integer::intValue).toArray();
         int r = config.featureSize;
-        int[] combination = new int[r];
+        if (cards.length < r || count <= 0)
+            return new LinkedList<>();
+        CombinationTask all = new CombinationTask(cards, count, new AtomicInteger(), new int[0], 0, cards.length - r + 1);
+        if (combinations(cards.length, r) <= SEQUENTIAL_COMBINATIONS)
+            return all.compute();
+        return ForkJoinPool.commonPool().invoke(all);
+    }
+
+    /**
+     * Finds sets of k = featureSize cards (4 to 64) the way findSetsByThirdCard does for 3: by going over the
+     * combinations of k - 1 cards, in lexicographic order of their positions in the deck, and looking up the single
+     * card that completes each of them. A combination is extended one card at a time, and dropped as soon as one of its
+     * features is neither the same on all its cards nor different on all of them (no card can complete it then).
+     * The features of the deck are laid out column-major (see Columns), so that checking which cards can extend a
+     * combination is a loop over consecutive ints per feature, which the JIT compiler can vectorize.
+     * Large decks are split between threads by the first positions of the combinations, and the sets found by the
+     * parts are concatenated in order, so that the sets are the same as (and in the order of) a sequential
+     * enumeration, unless there are more than count of them: then all the threads stop once count sets are found, and
+     * these are not necessarily the first count sets of the enumeration.
+     */
+    private List<int[]> findSetsByCompletion(List<Integer> deck, int count) {
+        Columns columns = new Columns(deck);
+        int k = config.featureSize;
+        if (columns.n < k || count <= 0)
+            return new LinkedList<>();
+        CompletionTask all = new CompletionTask(columns, count, new AtomicInteger(), new int[0], 0, columns.n - k + 1);
+        if (combinations(columns.n, k - 1) <= SEQUENTIAL_COMBINATIONS)
+            return all.compute();
+        return ForkJoinPool.commonPool().invoke(all);
+    }
+
+    /**
+     * @return - the number of combinations of k out of n (as a double, since it may be huge).
+     */
+    private static double combinations(int n, int k) {
+        double combinations = 1;
+        for (int i = 0; i < k; ++i)
+            combinations = combinations * (n - i) / (i + 1);
+        return combinations;
+    }
+
+    /**
+     * Finds the sets whose first card (by position) is at a position in [lo, hi), splitting the work if it is large.
+     */
+    private class ThirdCardTask extends RecursiveTask<List<int[]>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int[] cards;
+        private final int[] position;
+        private final int count;
+        private final AtomicInteger found;
+        private final int lo;
+        private final int hi;
+
+        ThirdCardTask(int[] cards, int[] position, int count, AtomicInteger found, int lo, int hi) {
+            this.cards = cards;
+            this.position = position;
+            this.count = count;
+            this.found = found;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        /**
+         * @return - the number of pairs with the first card at position i.
+         */
+        private double work(int i) {
+            return cards.length - 1 - i;
+        }
+
+        @Override
+        protected List<int[]> compute() {
+            double work = 0;
+            for (int i = lo; i < hi; ++i)
+                work += work(i);
+            if (work <= SEQUENTIAL_COMBINATIONS || hi - lo == 1 || found.get() >= count)
+                return search();
+
+            // split so that both halves have about the same number of pairs
+            int mid = lo + 1;
+            for (double half = work(lo); mid < hi - 1 && half + work(mid) <= work / 2; ++mid)
+                half += work(mid);
+            ThirdCardTask right = new ThirdCardTask(cards, position, count, found, mid, hi);
+            right.fork();
+            List<int[]> sets = new ThirdCardTask(cards, position, count, found, lo, mid).compute();
+            sets.addAll(right.join());
+            return sets;
+        }
+
+        private List<int[]> search() {
+            List<int[]> sets = new ArrayList<>();
+            int n = cards.length;
+            for (int i = lo; i < hi; ++i)
+                for (int j = i + 1; j < n - 1; ++j) {
+                    int third = thirdCard(cards[i], cards[j]);
+                    // every set is found exactly once: from the pair of its two earliest cards in the deck
+                    if (position[third] > j) {
+                        if (found.incrementAndGet() > count)
+                            return sets;
+                        int[] set = {cards[i], cards[j], third};
+                        Arrays.sort(set);
+                        sets.add(set);
+                    }
+                }
+            return sets;
+        }
+    }
+
+    /**
+     * Finds the sets among the combinations that start with the given positions (prefix) followed by a position in
+     * [lo, hi), splitting the work if it is large.
+     */
+    private class CombinationTask extends RecursiveTask<List<int[]>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int[] cards;
+        private final int count;
+        private final AtomicInteger found;
+        private final int[] prefix;
+        private final int lo;
+        private final int hi;
 
-        for (int i = 0; i < r; ++i)
-            combination[i] = i;
+        CombinationTask(int[] cards, int count, AtomicInteger found, int[] prefix, int lo, int hi) {
+            this.cards = cards;
+            this.count = count;
+            this.found = found;
+            this.prefix = prefix;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        /**
+         * @return - the number of combinations with position i after the prefix.
+         */
+        private double work(int i) {
+            return combinations(cards.length - 1 - i, config.featureSize - 1 - prefix.length);
+        }
+
+        @Override
+        protected List<int[]> compute() {
+            double work = 0;
+            for (int i = lo; i < hi; ++i)
+                work += work(i);
+            if (work <= SEQUENTIAL_COMBINATIONS || found.get() >= count)
+                return enumerate();
+
+            if (hi - lo == 1) {
+                // a single position with too many combinations after it: split by the next position
+                int[] next = Arrays.copyOf(prefix, prefix.length + 1);
+                next[prefix.length] = lo;
+                int nextHi = cards.length - (config.featureSize - next.length) + 1;
+                return new CombinationTask(cards, count, found, next, lo + 1, nextHi).compute();
+            }
 
-        while (combination[r - 1] < deck.size()) {
-            int[] cards = Arrays.stream(combination).map(deck::get).sorted().toArray();
-            if (testSet(cards)) {
-                sets.add(cards);
-                if (sets.size() >= count) return sets;
+            // split so that both halves have about the same number of combinations
+            int mid = lo + 1;
+            for (double half = work(lo); mid < hi - 1 && half + work(mid) <= work / 2; ++mid)
+                half += work(mid);
+            CombinationTask right = new CombinationTask(cards, count, found, prefix, mid, hi);
+            right.fork();
+            List<int[]> sets = new CombinationTask(cards, count, found, prefix, lo, mid).compute();
+            sets.addAll(right.join());
+            return sets;
+        }
+
+        private List<int[]> enumerate() {
+            List<int[]> sets = new ArrayList<>();
+            int n = cards.length;
+            int r = config.featureSize;
+            int d = prefix.length;
+            int[] combination = Arrays.copyOf(prefix, r);
+            int[] candidate = new int[r];
+
+            for (int i = lo; i < hi; ++i) {
+                combination[d] = i;
+                for (int t = d + 1; t < r; ++t) combination[t] = combination[t - 1] + 1;
+                while (true) {
+                    if (found.get() >= count) return sets;
+                    for (int t = 0; t < r; ++t) candidate[t] = cards[combination[t]];
+                    if (testSet(candidate) && found.incrementAndGet() <= count) {
+                        int[] set = candidate.clone();
+                        Arrays.sort(set);
+                        sets.add(set);
+                    }
+
+                    // generate next combination (of the positions after d) in lexicographic order
+                    int t = r - 1;
+                    while (t > d && combination[t] == n - r + t) --t;
+                    if (t == d) break;
+                    combination[t]++;
+                    for (int k = t + 1; k < r; k++) combination[k] = combination[k - 1] + 1;
+                }
             }
+            return sets;
+        }
+    }
+
+    /**
+     * The cards of a deck and their features, column-major: feature i of the card at position p of the deck is at
+     * values[i * n + p].
+     */
+    private class Columns {
+
+        final int n;
+        final int[] cards;
+        final int[] values;
+
+        /**
+         * The position of each card in the deck (-1 if it is not in the deck).
+         */
+        final int[] position;
+
+        Columns(List<Integer> deck) {
+            n = deck.size();
+            cards = deck.stream().mapToInt(Integer::intValue).toArray();
+            values = new int[config.featureCount * n];
+            for (int i = 0; i < config.featureCount; ++i)
+                for (int p = 0; p < n; ++p)
+                    values[i * n + p] = features[cards[p] * config.featureCount + i];
+            position = new int[config.deckSize];
+            Arrays.fill(position, -1);
+            for (int p = 0; p < n; ++p)
+                position[cards[p]] = p;
+        }
+    }
+
+    /**
+     * Finds the sets whose k - 1 first cards (by position) start with the given positions (prefix) followed by a
+     * position in [lo, hi), splitting the work if it is large.
+     */
+    private class CompletionTask extends RecursiveTask<List<int[]>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Columns columns;
+        private final int count;
+        private final AtomicInteger found;
+        private final int[] prefix;
+        private final int lo;
+        private final int hi;
+
+        /**
+         * The state of the depth-first search: the positions of the chosen cards, the values of each feature among the
+         * first t of them as a bitmask (at masks[t * featureCount + i]), and which positions can extend the first t
+         * of them (at extendable[t * n + p], 1 if it can).
+         */
+        private int[] chosen;
+        private long[] masks;
+        private int[] extendable;
+        private List<int[]> sets;
 
-            // generate next combination in lexicographic order
-            int t = r - 1;
-            while (t != 0 && combination[t] == n - r + t) --t;
-            combination[t]++;
-            for (int i = t + 1; i < r; i++) combination[i] = combination[i - 1] + 1;
+        CompletionTask(Columns columns, int count, AtomicInteger found, int[] prefix, int lo, int hi) {
+            this.columns = columns;
+            this.count = count;
+            this.found = found;
+            this.prefix = prefix;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        /**
+         * @return - the number of combinations of k - 1 cards with position i after the prefix.
+         */
+        private double work(int i) {
+            return combinations(columns.n - 1 - i, config.featureSize - 2 - prefix.length);
+        }
+
+        @Override
+        protected List<int[]> compute() {
+            double work = 0;
+            for (int i = lo; i < hi; ++i)
+                work += work(i);
+            if (work <= SEQUENTIAL_COMBINATIONS || found.get() >= count)
+                return search();
+
+            if (hi - lo == 1) {
+                // a single position with too many combinations after it: split by the next position
+                int[] next = Arrays.copyOf(prefix, prefix.length + 1);
+                next[prefix.length] = lo;
+                int nextHi = columns.n - (config.featureSize - next.length) + 1;
+                return new CompletionTask(columns, count, found, next, lo + 1, nextHi).compute();
+            }
+
+            // split so that both halves have about the same number of combinations
+            int mid = lo + 1;
+            for (double half = work(lo); mid < hi - 1 && half + work(mid) <= work / 2; ++mid)
+                half += work(mid);
+            CompletionTask right = new CompletionTask(columns, count, found, prefix, mid, hi);
+            right.fork();
+            List<int[]> sets = new CompletionTask(columns, count, found, prefix, lo, mid).compute();
+            sets.addAll(right.join());
+            return sets;
+        }
+
+        private List<int[]> search() {
+            int k = config.featureSize;
+            int d = prefix.length;
+            chosen = Arrays.copyOf(prefix, k - 1);
+            masks = new long[k * config.featureCount];
+            extendable = new int[k * columns.n];
+            sets = new ArrayList<>();
+            for (int t = 0; t < d; ++t)
+                if (!choose(t, prefix[t]))
+                    return sets; // no set starts with the prefix
+            for (int p = lo; p < hi && found.get() < count; ++p)
+                if (choose(d, p))
+                    extend(d + 1);
+            return sets;
+        }
+
+        /**
+         * Chooses the card at a position as the card number t (from 0).
+         *
+         * @return - true iff every feature is the same or different on all of the t + 1 chosen cards.
+         */
+        private boolean choose(int t, int p) {
+            chosen[t] = p;
+            int featureCount = config.featureCount;
+            int n = columns.n;
+            boolean viable = true;
+            for (int i = 0; i < featureCount; ++i) {
+                long mask = masks[t * featureCount + i] | 1L << columns.values[i * n + p];
+                masks[(t + 1) * featureCount + i] = mask;
+                int distinct = Long.bitCount(mask);
+                viable &= distinct == 1 || distinct == t + 1;
+            }
+            return viable;
+        }
+
+        /**
+         * Extends the t chosen cards (t >= 1) in every possible way, or looks up the card completing them to a set if
+         * there are k - 1 of them.
+         */
+        private void extend(int t) {
+            int k = config.featureSize;
+            int featureCount = config.featureCount;
+            int n = columns.n;
+            if (t == k - 1) {
+                complete();
+                return;
+            }
+
+            // the positions after the last chosen card that leave room for the rest of the cards
+            int from = chosen[t - 1] + 1, to = n - (k - 1 - t);
+            int[] can = extendable;
+            int base = t * n;
+            Arrays.fill(can, base + from, base + to, 1);
+            if (t > 1)
+                for (int i = 0; i < featureCount; ++i) {
+                    // the values the next card may have: the common value if all the chosen cards have it, or any
+                    // other value if they all differ
+                    long mask = masks[t * featureCount + i];
+                    long allowed = Long.bitCount(mask) == 1 ? mask : ~mask;
+                    for (int p = from, column = i * n; p < to; ++p)
+                        can[base + p] &= (int) (allowed >>> columns.values[column + p]) & 1;
+                }
+
+            for (int p = from; p < to && found.get() < count; ++p)
+                if (can[base + p] != 0) {
+                    choose(t, p);
+                    extend(t + 1);
+                }
+        }
+
+        /**
+         * Looks up the card completing the k - 1 chosen cards to a set, and adds the set if it is after them in the deck
+         * (every set is found exactly once: from its k - 1 first cards).
+         */
+        private void complete() {
+            int k = config.featureSize;
+            int featureCount = config.featureCount;
+            int card = 0;
+            for (int i = 0; i < featureCount; ++i) {
+                // the common value if all the chosen cards have it, or the only value none of them has
+                long mask = masks[(k - 1) * featureCount + i];
+                int value = Long.numberOfTrailingZeros(Long.bitCount(mask) == 1 ? mask : ~mask);
+                card += value * featureWeights[i];
+            }
+            if (columns.position[card] > chosen[k - 2] && found.incrementAndGet() <= count) {
+                int[] set = new int[k];
+                for (int t = 0; t < k - 1; ++t)
+                    set[t] = columns.cards[chosen[t]];
+                set[k - 1] = card;
+                Arrays.sort(set);
+                sets.add(set);
+            }
         }
-        return sets;
     }
 
     public void spin() {
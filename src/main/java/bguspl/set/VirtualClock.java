@@ -0,0 +1,43 @@
+package bguspl.set;
+
+import java.util.concurrent.locks.Condition;
+
+/**
+ * A clock that runs a fixed number of times faster than real time: sleeping or waiting for a period of virtual time
+ * only takes that period divided by the speedup in real time.
+ */
+public class VirtualClock implements GameClock {
+
+    private final long speedup;
+    private final long startMillis;
+    private final long startNanos;
+
+    /**
+     * @param speedup - how many times faster than real time the clock runs.
+     */
+    public VirtualClock(long speedup) {
+        this.speedup = Math.max(1, speedup);
+        startMillis = System.currentTimeMillis();
+        startNanos = System.nanoTime();
+    }
+
+    private long toRealNanos(long millis) {
+        return millis * 1_000_000L / speedup;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return startMillis + (System.nanoTime() - startNanos) * speedup / 1_000_000L;
+    }
+
+    @Override
+    public void sleep(long millis) throws InterruptedException {
+        long nanos = toRealNanos(millis);
+        Thread.sleep(nanos / 1_000_000L, (int) (nanos % 1_000_000L));
+    }
+
+    @Override
+    public void await(Condition condition, long millis) throws InterruptedException {
+        condition.awaitNanos(toRealNanos(millis));
+    }
+}
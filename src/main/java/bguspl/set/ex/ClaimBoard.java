@@ -0,0 +1,139 @@
+package bguspl.set.ex;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * The claims made by the players and not yet checked by the dealer, in preallocated rows of primitives. A player has
+ * at most one claim at a time (it waits for the verdict before it claims again), so each player has a row of its own:
+ * the player writes it and then publishes it by setting its pending flag (a volatile write), and the dealer takes the
+ * claims by scanning the flags, starting after the player it took last, so that no player waits for many claims of
+ * others. Making and taking a claim allocate nothing.
+ */
+final class ClaimBoard {
+
+    private final int players;
+    private final int width;
+
+    /**
+     * The claimed slots (in ascending order) and their versions (see Table.versions) of player p are at
+     * [p * width, p * width + sizes[p]) of slots and versions.
+     */
+    private final int[] slots;
+    private final int[] versions;
+    private final int[] sizes;
+
+    /**
+     * When each claim was made (System.nanoTime(), only if timed).
+     */
+    private final long[] nanos;
+    private final boolean timed;
+
+    /**
+     * 1 for each player with a claim that the dealer has not taken yet, and the number of such claims.
+     */
+    private final AtomicIntegerArray pending;
+    private final AtomicInteger count = new AtomicInteger();
+
+    /**
+     * The player to start the next scan from (used only by the dealer).
+     */
+    private int next;
+
+    /**
+     * @param players - the number of players.
+     * @param width   - the maximal number of slots in a claim (featureSize).
+     * @param timed   - true iff the time of the claims should be recorded.
+     */
+    ClaimBoard(int players, int width, boolean timed) {
+        this.players = players;
+        this.width = width;
+        this.timed = timed;
+        slots = new int[players * width];
+        versions = new int[players * width];
+        sizes = new int[players];
+        nanos = new long[players];
+        pending = new AtomicIntegerArray(players);
+    }
+
+    /**
+     * Makes a claim of the slots a player has tokens on (called by the player).
+     *
+     * @return - the number of claims not taken yet (including this one).
+     */
+    int post(int player, Table table) {
+        int base = player * width;
+        int size = table.getTokens(player, slots, base, width);
+        for (int i = 0; i < size; i++)
+            versions[base + i] = table.version(player, slots[base + i]);
+        return publish(player, size);
+    }
+
+    /**
+     * Makes a claim of the given slots and versions (e.g. of a replayed claim).
+     *
+     * @return - the number of claims not taken yet (including this one).
+     */
+    int post(int player, int[] claimed, int[] claimedVersions) {
+        int size = Math.min(claimed.length, width);
+        System.arraycopy(claimed, 0, slots, player * width, size);
+        System.arraycopy(claimedVersions, 0, versions, player * width, size);
+        return publish(player, size);
+    }
+
+    private int publish(int player, int size) {
+        sizes[player] = size;
+        if (timed)
+            nanos[player] = System.nanoTime();
+        pending.set(player, 1);
+        return count.incrementAndGet();
+    }
+
+    boolean isEmpty() {
+        return count.get() == 0;
+    }
+
+    /**
+     * Takes a claim (called by the dealer). Its row stays as it is until the player is given the verdict.
+     *
+     * @return - the claiming player, or -1 if there are no claims.
+     */
+    int take() {
+        if (count.get() == 0)
+            return -1;
+        for (int i = 0; i < players; i++) {
+            int player = (next + i) % players;
+            if (pending.get(player) == 1) {
+                pending.set(player, 0);
+                count.decrementAndGet();
+                next = player + 1;
+                return player;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Copies the slots of a player's claim.
+     *
+     * @return - the number of slots.
+     */
+    int slots(int player, int[] into) {
+        System.arraycopy(slots, player * width, into, 0, sizes[player]);
+        return sizes[player];
+    }
+
+    /**
+     * @return - the version of slot i (from 0) of a player's claim when the claim was made.
+     */
+    int version(int player, int i) {
+        return versions[player * width + i];
+    }
+
+    /**
+     * @return - when a player's claim was made (System.nanoTime(), 0 if not timed).
+     */
+    long nanos(int player) {
+        return nanos[player];
+    }
+}
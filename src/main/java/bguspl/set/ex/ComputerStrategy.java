@@ -0,0 +1,30 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+
+/**
+ * How a computer player chooses its key presses. The AI thread of the player repeatedly asks the strategy for a key
+ * press, presses it (unless there is none), and waits as long as the strategy says before asking again.
+ * A strategy is used by the AI thread of a single player only.
+ */
+public interface ComputerStrategy {
+
+    /**
+     * @param table  - the table.
+     * @param player - the id of the player.
+     * @return - the slot to press now, or -1 to press nothing.
+     */
+    int nextKeyPress(Table table, int player);
+
+    /**
+     * @return - how long to wait (in game time) before the next call to nextKeyPress.
+     */
+    long delayMillis();
+
+    /**
+     * @return - a new strategy of the kind of the configuration (see Config.computerStrategy).
+     */
+    static ComputerStrategy create(Env env) {
+        return env.config.computerStrategy.equalsIgnoreCase("Solver") ? new SolverStrategy(env) : new RandomStrategy(env);
+    }
+}
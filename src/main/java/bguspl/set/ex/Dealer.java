@@ -4,14 +4,10 @@ import bguspl.set.Env;
 import bguspl.set.ThreadLogger;
 
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Queue;
-import java.util.Vector;
+import java.util.Random;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
-import java.util.Map;
-import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 /**
@@ -31,37 +27,113 @@ public class Dealer implements Runnable {
     private final Player[] players;
 
     /**
-     * The list of card ids that are left in the dealer's deck.
+     * The threads of the players (started by the dealer).
      */
-    private final List<Integer> deck;
+    private final ThreadLogger[] playerThreads;
 
-    private final Queue<Integer> claimSetsQ;
-    private final ReentrantLock qLock;
+    /**
+     * The cards that are left in the dealer's deck.
+     */
+    private final Deck deck;
+
+    /**
+     * The slots of the table, in the (random) order in which they are dealt to or cleared.
+     */
+    private final int[] slotOrder;
+
+    /**
+     * The cards still in the game (on the table or in the deck) and the number of legal sets among them.
+     */
+    private final SetIndex remaining;
+
+    /**
+     * The random number generator used for shuffling and dealing, and its seed (recorded in the game journal).
+     */
+    private final long seed;
+    private final Random random;
+
+    /**
+     * The claims made by the players and not yet checked.
+     */
+    private final ClaimBoard claims;
+
+    /**
+     * The slots and cards of the claim being checked.
+     */
+    private final int[] claimedSlots;
+    private final int[] claimedCards;
 
     private int[] cardsToRemove;
 
+    /**
+     * True iff the game metrics are recorded (otherwise the dealer does not take the time of anything).
+     */
+    private final boolean timed;
+
     /**
      * True iff game should be terminated.
      */
     private volatile boolean terminate;
 
-    public volatile boolean shuffling;
+    /**
+     * True iff the dealer is shuffling and dealing cards (players wait on shuffleDone until it is done).
+     */
+    private boolean shuffling;
+    private final Lock shuffleLock = new ReentrantLock();
+    private final Condition shuffleDone = shuffleLock.newCondition();
+
+    /**
+     * When the dealer started shuffling (System.nanoTime(), 0 before the first round ended).
+     */
+    private long shuffleStartNanos;
+
+    /**
+     * Since when the table has no legal set (in game time, -1 if it has one or the round is over).
+     */
+    private long deadBoardSince = -1;
+
+    /**
+     * Signalled when a claim is added, to wake the dealer up.
+     */
+    private final Lock wakeLock = new ReentrantLock();
+    private final Condition claimAdded = wakeLock.newCondition();
 
     /**
      * The time when the dealer needs to reshuffle the deck due to turn timeout.
      */
     private long reshuffleTime = Long.MAX_VALUE;
 
+    /**
+     * The time when the countdown display needs to be updated next.
+     */
+    private long nextDisplayTime = Long.MAX_VALUE;
+
     public Dealer(Env env, Table table, Player[] players) {
+        this(env, table, players, new Random().nextLong());
+    }
+
+    /**
+     * @param seed - the seed of the random number generator used for shuffling and dealing.
+     */
+    public Dealer(Env env, Table table, Player[] players, long seed) {
         this.env = env;
+        this.seed = seed;
+        this.random = new Random(seed);
         this.table = table;
         this.players = players;
-        deck = IntStream.range(0, env.config.deckSize).boxed().collect(Collectors.toList());
-        this.claimSetsQ = new LinkedList<>();
+        this.playerThreads = new ThreadLogger[players.length];
+        deck = new Deck(env.config.deckSize);
+        slotOrder = IntStream.range(0, env.config.tableSize).toArray();
+        remaining = new SetIndex(env);
+        for (int card = 0; card < env.config.deckSize; card++)
+            remaining.add(card);
+        timed = env.metrics.enabled();
+        this.claims = new ClaimBoard(players.length, env.config.featureSize, timed);
+        claimedSlots = new int[env.config.featureSize];
+        claimedCards = new int[env.config.featureSize];
         this.cardsToRemove = null;
-        reshuffleTime = System.currentTimeMillis() + env.config.turnTimeoutMillis;
+        reshuffleTime = env.clock.currentTimeMillis() + env.config.turnTimeoutMillis;
         shuffling = true;
-        this.qLock = new ReentrantLock(true);
     }
     
     /**
@@ -70,42 +142,35 @@ public class Dealer implements Runnable {
     @Override
     public void run() {
         env.logger.info("thread " + Thread.currentThread().getName() + " starting.");
-        for (Player player : players) {
-            new ThreadLogger(player, "player " + player.id, env.logger).startWithLog();
-        }
-        for (ReentrantLock lock : table.slotLocks) {
-            lock.lock();
+        for (int i = 0; i < players.length; i++) {
+            playerThreads[i] = new ThreadLogger(players[i], "player " + players[i].id, env.logger);
+            playerThreads[i].startWithLog();
         }
+        env.journal.gameStarted(seed);
         while (!shouldFinish()) {
-            placeCardsOnTable(); 
-            if (env.config.hints)
-                table.hints();
-            shuffling = false;   
+            env.journal.roundStarted();
+            dealRound();
 
             timerLoop();
+            env.journal.roundEnded();
             updateTimerDisplay(true);
-            shuffling = true;
+            startShuffling();
             removeAllCardsFromTable();
         }
-        System.out.println("Starting termination sequence");
-        shuffling = false;
+        env.journal.gameEnded();
+        env.logger.info("dealer starting termination sequence.");
+        // the players stay behind the shuffle barrier (instead of spinning on an empty table) until they are terminated
         announceWinners();
-        //TODO: Plaster - need to think of a better way!!:
-        for (ReentrantLock lock : table.slotLocks) {
-            lock.unlock();
-        }
 
         for (int i = players.length - 1; i >= 0; i--) {
-            System.out.println("Dealer: Starting to terminate player " + players[i].id);
             players[i].terminate();
-            synchronized(players[i]) {
-                players[i].notifyAll();
-            }
-            players[i].join();
-            System.out.println("Player " + players[i].id + " joined ");
+            players[i].claimChecked();
+            try {
+                playerThreads[i].joinWithLog();
+            } catch (InterruptedException ignored) {}
         }
         try {
-            Thread.sleep(env.config.endGamePauseMillies);
+            env.clock.sleep(env.config.endGamePauseMillies);
         } catch (InterruptedException e) {}
         env.logger.info("thread " + Thread.currentThread().getName() + " terminated.");
     }
@@ -114,51 +179,144 @@ public class Dealer implements Runnable {
      * The inner loop of the dealer thread that runs as long as the countdown did not time out.
      */
     private void timerLoop() {
-        reshuffleTime = System.currentTimeMillis() + env.config.turnTimeoutMillis + 100;
-        boolean isSet = false;
-        while (!terminate && System.currentTimeMillis() < reshuffleTime) {
-            updateTimerDisplay(isSet);
-            Map.Entry<Integer, List<Integer>> e = checkClaimedSet().entrySet().iterator().next();
-
-            List<Integer> slotsToCheck = e.getValue();
-            int id = e.getKey();
-            Collections.sort(slotsToCheck);
-            if (!slotsToCheck.isEmpty()) {
-                int[] cardsToCheck = new int[slotsToCheck.size()];
-                for (int i = 0; i < env.config.featureSize; i++){
-                    int slot = slotsToCheck.get(i);
-                    table.slotLocks[slot].lock();
-                    cardsToCheck[i] = table.slotToCard[slot];
-                }
-                
-                isSet = env.util.testSet(cardsToCheck);
-                if (isSet) {
-                    players[id].point();
-                    this.cardsToRemove = cardsToCheck;
-                    synchronized(players[id]){
-                        players[id].notifyAll();
-                    }
-                    removeCardsFromTable();
-                    placeCardsOnTable();
-                    if (env.config.hints)
-                        table.hints();
+        finishShuffling();
+        updateTimerDisplay(true);
+        updateDeadBoard(false);
+        while (!terminate && env.clock.currentTimeMillis() < reshuffleTime) {
+            boolean reset = false, checked = false;
+            for (int claim = nextClaim(); claim >= 0; claim = nextClaim()) {
+                reset |= checkClaim(claim);
+                checked = true;
+            }
+            if (reset)
+                updateDeadBoard(false);
 
-                }
-                else{
-                    players[id].penalty();
-                    synchronized(players[id]) {players[id].notifyAll(); }
-                }
+            long now = env.clock.currentTimeMillis();
+            if (reset || now >= nextDisplayTime)
+                updateTimerDisplay(reset);
+            // sleep until the next display update or reshuffle, unless a claim arrives first
+            if (!checked)
+                sleepUntilWokenOrTimeout(Math.min(nextDisplayTime, reshuffleTime) - now);
+        }
+        updateDeadBoard(true);
+    }
 
-                for (int i = env.config.featureSize - 1; i >= 0; i--){
-                    int slot = slotsToCheck.get(i);
-                    table.slotLocks[slot].unlock();
-                }
+    /**
+     * Keeps track of the time the table has no legal set during a round, and reports it when the table gets one or
+     * the round ends. Does nothing unless the metrics are recorded (searching the table for a set is not free).
+     *
+     * @param roundEnded - true iff the round ended.
+     */
+    private void updateDeadBoard(boolean roundEnded) {
+        if (!timed)
+            return;
+        long now = env.clock.currentTimeMillis();
+        boolean dead = !roundEnded && !table.hasSet();
+        if (dead && deadBoardSince < 0)
+            deadBoardSince = now;
+        else if (!dead && deadBoardSince >= 0) {
+            env.metrics.deadBoard(now - deadBoardSince);
+            deadBoardSince = -1;
+        }
+    }
+
+    /**
+     * Checks a claimed set, rewards or penalizes the claiming player and wakes it up.
+     *
+     * @param claimant - the player whose claim to check (taken by nextClaim).
+     * @return - true iff the claim was a legal set (and its cards were replaced).
+     */
+    boolean checkClaim(int claimant) {
+        Player player = players[claimant];
+        int size = claims.slots(claimant, claimedSlots);
+        env.journal.claimChecked(claimant, size == claimedSlots.length ? claimedSlots : Arrays.copyOf(claimedSlots, size));
+
+        // the claim is stale if the card of any of its slots was changed since it was made (which removed the token);
+        // no slot needs to be locked, since only the dealer changes the cards
+        boolean stale = size != env.config.featureSize;
+        for (int i = 0; i < size && !stale; i++)
+            stale = table.version(claimedSlots[i]) != claims.version(claimant, i);
+
+        boolean isSet = false;
+        if (stale) {
+            verdict(player, claimant, true);
+        }
+        else {
+            for (int i = 0; i < size; i++)
+                claimedCards[i] = table.slotToCard[claimedSlots[i]];
+
+            long start = timed ? System.nanoTime() : 0;
+            isSet = env.util.testSet(claimedCards);
+            if (timed)
+                env.metrics.setTested(System.nanoTime() - start);
+            if (isSet) {
+                env.journal.point(claimant);
+                player.point();
+                this.cardsToRemove = claimedCards;
+                verdict(player, claimant, false);
+                removeCardsFromTable();
+                dealRound();
             }
             else {
-                if (reshuffleTime - System.currentTimeMillis() > env.config.turnTimeoutWarningMillis)
-                    sleepUntilWokenOrTimeout();
+                env.journal.penalty(claimant);
+                player.penalty();
+                verdict(player, claimant, false);
             }
         }
+
+        return isSet;
+    }
+
+    /**
+     * Releases the claiming player.
+     */
+    private void verdict(Player player, int claimant, boolean stale) {
+        if (timed)
+            env.metrics.claimChecked(System.nanoTime() - claims.nanos(claimant), stale);
+        player.claimChecked();
+    }
+
+    /**
+     * Makes the players wait until the dealer is done shuffling.
+     */
+    void startShuffling() {
+        shuffleStartNanos = timed ? System.nanoTime() : 0;
+        shuffleLock.lock();
+        try {
+            shuffling = true;
+        } finally {
+            shuffleLock.unlock();
+        }
+    }
+
+    /**
+     * Releases all the players waiting for the dealer to finish shuffling.
+     */
+    void finishShuffling() {
+        shuffleLock.lock();
+        try {
+            shuffling = false;
+            shuffleDone.signalAll();
+        } finally {
+            shuffleLock.unlock();
+        }
+        if (shuffleStartNanos != 0)
+            env.metrics.reshuffled(System.nanoTime() - shuffleStartNanos);
+    }
+
+    /**
+     * Blocks the calling player thread while the dealer is shuffling.
+     *
+     * @throws InterruptedException - if the thread is interrupted while waiting.
+     */
+    public void awaitShuffle() throws InterruptedException {
+        shuffleLock.lock();
+        try {
+            while (shuffling)
+                shuffleDone.await();
+        } finally {
+            shuffleLock.unlock();
+        }
     }
 
     /**
@@ -174,7 +332,16 @@ public class Dealer implements Runnable {
      * @return true iff the game should be finished.
      */
     private boolean shouldFinish() {
-        return terminate || env.util.findSets(deck, 1).size() == 0;
+        return terminate || !remaining.hasSet();
+    }
+
+    /**
+     * Places cards on the table (and prints the hints, if enabled).
+     */
+    void dealRound() {
+        placeCardsOnTable();
+        if (env.config.hints)
+            table.hints();
     }
 
     /**
@@ -182,8 +349,10 @@ public class Dealer implements Runnable {
      */
     private void removeCardsFromTable() {
         if (cardsToRemove != null) {
-            for(int i = 0; i < cardsToRemove.length; i++)
+            for(int i = 0; i < cardsToRemove.length; i++) {
                 table.removeCard(table.cardToSlot[cardsToRemove[i]]);
+                remaining.remove(cardsToRemove[i]);
+            }
         }
         cardsToRemove = null;
     }
@@ -192,65 +361,149 @@ public class Dealer implements Runnable {
      * Check if any cards can be removed from the deck and placed on the table.
      */
     private void placeCardsOnTable() {
-        if(env.util.findSets(deck, 1).isEmpty())
+        if(!remaining.hasSet())
             terminate();
         else {
-            Collections.shuffle(deck);
-            List<Integer> range = IntStream.range(0, env.config.columns * env.config.rows).boxed().collect(Collectors.toList());
-            Collections.shuffle(range);
-            for(int i : range){
-                if(table.slotToCard[i] == null && !deck.isEmpty()){
-                    int card = deck.remove(deck.size()-1);
+            int[] completion = null;
+            if (env.config.smartDealing) {
+                long start = timed ? System.nanoTime() : 0;
+                completion = completeSet();
+                if (timed)
+                    env.metrics.setsSearched(System.nanoTime() - start);
+            }
+            int dealt = 0;
+            shuffleSlots();
+            for(int i : slotOrder){
+                if(table.slotToCard[i] == Table.EMPTY && !deck.isEmpty()){
+                    // the cards completing a set (if any) are dealt first, and then random cards (drawing removes them)
+                    int card;
+                    if (completion != null && dealt < completion.length) {
+                        card = completion[dealt++];
+                        deck.remove(card);
+                    }
+                    else
+                        card = deck.draw(random);
                     table.placeCard(card, i);
                 }
             }
         }
     }
 
+    /**
+     * If there is no legal set on the table, finds the fewest deck cards that complete one (with the cards on the
+     * table) and fit in the empty slots, to be dealt first.
+     * The completing cards are found by looking up the third card of pairs: of table cards, of a table card and a
+     * deck card, and of deck cards, in that order (the deck cards are gone over from a random one, so the choice is
+     * random).
+     *
+     * @return - the completing cards (null if the table has a set or no deck cards complete one).
+     */
+    private int[] completeSet() {
+        if (table.hasSet())
+            return null;
+        int free = env.config.tableSize - table.countCards();
+        int size = deck.size();
+        int first = size == 0 ? 0 : random.nextInt(size);
+        int[] onTable = Arrays.stream(table.slotToCard).filter(card -> card != Table.EMPTY).toArray();
+
+        int[] completion = null;
+        if (free >= 1)
+            for (int i = 0; i < onTable.length && completion == null; i++)
+                for (int j = i + 1; j < onTable.length && completion == null; j++) {
+                    int third = env.util.thirdCard(onTable[i], onTable[j]);
+                    if (third >= 0 && deck.contains(third))
+                        completion = new int[]{third};
+                }
+        if (free >= 2)
+            for (int i = 0; i < onTable.length && completion == null; i++)
+                for (int j = 0; j < size && completion == null; j++) {
+                    int card = deck.get((first + j) % size);
+                    int third = env.util.thirdCard(onTable[i], card);
+                    if (third >= 0 && deck.contains(third))
+                        completion = new int[]{card, third};
+                }
+        if (free >= 3)
+            for (int i = 0; i < size && completion == null; i++)
+                for (int j = i + 1; j < size && completion == null; j++) {
+                    int card1 = deck.get((first + i) % size), card2 = deck.get((first + j) % size);
+                    int third = env.util.thirdCard(card1, card2);
+                    if (third >= 0 && deck.contains(third))
+                        completion = new int[]{card1, card2, third};
+                }
+        return completion;
+    }
+
+    /**
+     * Shuffles the order in which the slots are dealt to or cleared (in place).
+     */
+    private void shuffleSlots() {
+        for (int i = slotOrder.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int slot = slotOrder[i];
+            slotOrder[i] = slotOrder[j];
+            slotOrder[j] = slot;
+        }
+    }
+
     /**
      * Sleep for a fixed amount of time or until the thread is awakened for some purpose.
      */
-    private synchronized void sleepUntilWokenOrTimeout() {
+    private void sleepUntilWokenOrTimeout(long millis) {
+        wakeLock.lock();
         try{
-            this.wait(1000);
+            if (claims.isEmpty() && millis > 0)
+                env.clock.await(claimAdded, millis);
         }
         catch(InterruptedException ignored) {}
+        finally {
+            wakeLock.unlock();
+        }
     }
 
     /**
      * Reset and/or update the countdown and the countdown display.
      */
     private void updateTimerDisplay(boolean reset) {
+        long remaining;
         if (reset){
-            reshuffleTime = System.currentTimeMillis() + env.config.turnTimeoutMillis + 100;
-            env.ui.setCountdown(env.config.turnTimeoutMillis, false);
-            // table.hints();
-            
+            reshuffleTime = env.clock.currentTimeMillis() + env.config.turnTimeoutMillis + 100;
+            remaining = env.config.turnTimeoutMillis;
+            env.ui.setCountdown(remaining, false);
         }   
         else {
-            long nextTime = reshuffleTime - System.currentTimeMillis();
-            env.ui.setCountdown(nextTime, nextTime < env.config.turnTimeoutWarningMillis);
+            remaining = reshuffleTime - env.clock.currentTimeMillis();
+            env.ui.setCountdown(remaining, remaining < env.config.turnTimeoutWarningMillis);
         }
+        nextDisplayTime = reshuffleTime - nextDisplayedRemaining(remaining);
+    }
 
+    /**
+     * Computes the remaining time at which the countdown display should be updated next: the next whole display
+     * period (of the warning period if in it), or the start of the warning period if it comes first.
+     *
+     * @param remaining - the currently displayed remaining time.
+     * @return - the remaining time to display next.
+     */
+    private long nextDisplayedRemaining(long remaining) {
+        boolean warn = remaining <= env.config.turnTimeoutWarningMillis;
+        long period = warn ? env.config.timerWarningDisplayMillis : env.config.timerDisplayMillis;
+        long next = ((remaining - 1) / period) * period;
+        return warn ? next : Math.max(next, env.config.turnTimeoutWarningMillis - 1);
     }
 
     /**
      * Returns all the cards from the table to the deck.
      */
-    private void removeAllCardsFromTable() {
-        List<Integer> range = IntStream.range(0, env.config.tableSize).boxed().collect(Collectors.toList());
-        Collections.shuffle(range);
-            for(int i : range){
-                if (table.slotToCard[i] != null) {
-                    int card = table.slotToCard[i];
-                    table.removeCard(i);
-                    deck.add(card);
-                }
+    void removeAllCardsFromTable() {
+        shuffleSlots();
+        for(int i : slotOrder){
+            if (table.slotToCard[i] != Table.EMPTY) {
+                int card = table.slotToCard[i];
+                table.removeCard(i);
+                deck.add(card);
             }
-            for (Player player : players) {
-                player.clearTokens();
-            }
-    }   
+        }
+    }
 
     /**
      * Check who is/are the winner/s and displays them.
@@ -260,24 +513,41 @@ public class Dealer implements Runnable {
         env.ui.announceWinner(Arrays.stream(players).filter(p -> p.score() == maxScore).mapToInt(p-> p.id).toArray());
     }
 
-    public void addClaimSet(int playerId){
-            // System.out.println("player " + playerId + " claimed set!");
-            qLock.lock();
-            claimSetsQ.add(playerId);
-            qLock.unlock();
+    /**
+     * Called by a player to claim the set of the slots it has tokens on, wakes the dealer up to check it.
+     * A player may have only one claim at a time (it must wait for the verdict before it claims again).
+     *
+     * @param playerId - the id of the claiming player.
+     */
+    public void addClaimSet(int playerId) {
+        claimAdded(claims.post(playerId, table));
+    }
+
+    /**
+     * Like addClaimSet(playerId), but of the given slots (e.g. of a replayed claim).
+     *
+     * @param playerId - the id of the claiming player.
+     * @param slots    - the claimed slots, in ascending order.
+     * @param versions - the versions of the slots (see Table.versions).
+     */
+    public void addClaimSet(int playerId, int[] slots, int[] versions) {
+        claimAdded(claims.post(playerId, slots, versions));
     }
 
-    private Map<Integer, List<Integer>> checkClaimedSet() {
-        int id = -1;
-        qLock.lock();
-            if (!claimSetsQ.isEmpty())
-                id = claimSetsQ.remove();
-        qLock.unlock();
-        if (id != -1){
-            // System.out.println("checking player " + id + " set!");
-            return Map.of(id, players[id].getTokens());
+    private void claimAdded(int pending) {
+        env.metrics.claimQueued(pending);
+        wakeLock.lock();
+        try {
+            claimAdded.signalAll();
+        } finally {
+            wakeLock.unlock();
         }
-        else
-            return Map.of(id, new Vector<Integer>());
+    }
+
+    /**
+     * @return - the next player whose claim is not yet checked, or -1 if there is none.
+     */
+    int nextClaim() {
+        return claims.take();
     }
 }
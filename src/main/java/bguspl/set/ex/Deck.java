@@ -0,0 +1,99 @@
+package bguspl.set.ex;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * The cards in the dealer's deck, in no particular order: a random card is drawn by swapping it with the last card
+ * and dropping it, so drawing never needs the deck to be shuffled, and drawing, adding and removing a card take
+ * constant time and allocate nothing. Which cards are in the deck is also kept as a bitset, for fast lookups.
+ * Not thread safe.
+ */
+class Deck {
+
+    /**
+     * The cards in the deck, and the position of each card in it (-1 if not in the deck).
+     */
+    private final int[] cards;
+    private final int[] position;
+    private int size;
+
+    /**
+     * Bit card % 64 of present[card / 64] is set iff the card is in the deck.
+     */
+    private final long[] present;
+
+    /**
+     * Creates a deck of all the cards.
+     *
+     * @param deckSize - the number of cards in the game.
+     */
+    Deck(int deckSize) {
+        cards = new int[deckSize];
+        position = new int[deckSize];
+        present = new long[(deckSize + Long.SIZE - 1) / Long.SIZE];
+        Arrays.fill(position, -1);
+        for (int card = 0; card < deckSize; card++)
+            add(card);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return - the card at a position of the deck (0 to size - 1; the order changes when cards are drawn or removed).
+     */
+    int get(int index) {
+        return cards[index];
+    }
+
+    /**
+     * @return - true iff the card is in the deck.
+     */
+    boolean contains(int card) {
+        return (present[card >>> 6] & 1L << card) != 0;
+    }
+
+    /**
+     * Adds a card to the deck (does nothing if it is already in it).
+     */
+    void add(int card) {
+        if (contains(card))
+            return;
+        position[card] = size;
+        cards[size++] = card;
+        present[card >>> 6] |= 1L << card;
+    }
+
+    /**
+     * Removes a card from the deck (does nothing if it is not in it).
+     */
+    void remove(int card) {
+        if (!contains(card))
+            return;
+        int index = position[card];
+        int last = cards[--size];
+        cards[index] = last;
+        position[last] = index;
+        position[card] = -1;
+        present[card >>> 6] &= ~(1L << card);
+    }
+
+    /**
+     * Removes a random card from the deck.
+     *
+     * @return - the card (-1 if the deck is empty).
+     */
+    int draw(Random random) {
+        if (size == 0)
+            return -1;
+        int card = cards[random.nextInt(size)];
+        remove(card);
+        return card;
+    }
+}
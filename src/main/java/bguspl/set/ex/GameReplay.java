@@ -0,0 +1,176 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.GameClock;
+import bguspl.set.GameJournal;
+import bguspl.set.JournalEvent;
+import bguspl.set.JournalReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+
+/**
+ * Replays a game recorded by a JournalWriter on a single thread, as fast as possible.
+ * The players' actions (token placements and removals, claims) and the timing of the rounds are taken from the
+ * journal, while the dealer re-makes its decisions (dealing with the journaled seed, checking the claims): each of
+ * them is verified against the journal, so that a replay reproduces the game exactly or fails where it diverges.
+ */
+public class GameReplay {
+
+    private final Env env;
+    private final Table table;
+    private final Player[] players;
+    private final Dealer dealer;
+
+    /**
+     * The journaled events caused by the dealer (expected to be reproduced in this order) and all the events.
+     */
+    private final Deque<JournalEvent> outputs = new ArrayDeque<>();
+    private final List<JournalEvent> events = new ArrayList<>();
+
+    /**
+     * The card in each slot as of the event being replayed, according to the journal. The replaying dealer changes the
+     * cards when it checks a claim, which may be ahead of the journal: the recording dealer changed them a little
+     * later, and the players could act on the old cards meanwhile.
+     */
+    private final int[] journaledCards;
+
+    /**
+     * The time of the event being replayed.
+     */
+    private long time;
+
+    /**
+     * @param env     - the game environment (its clock and journal are not used).
+     * @param journal - the journal to replay.
+     * @throws IOException - if the journal cannot be read, or it does not match the configuration.
+     */
+    public GameReplay(Env env, InputStream journal) throws IOException {
+        long seed = read(env.config, journal);
+        journaledCards = new int[env.config.tableSize];
+        Arrays.fill(journaledCards, Table.EMPTY);
+        this.env = new Env(env.logger, env.config, env.ui, env.util, new ReplayClock(), new Verifier());
+        table = new Table(this.env);
+        players = new Player[env.config.players];
+        dealer = new Dealer(this.env, table, players, seed);
+        for (int i = 0; i < players.length; i++)
+            players[i] = new Player(this.env, dealer, table, i, false);
+    }
+
+    private long read(Config config, InputStream journal) throws IOException {
+        JournalReader reader = new JournalReader(journal);
+        if (reader.featureSize != config.featureSize || reader.featureCount != config.featureCount
+                || reader.tableSize != config.tableSize || reader.players != config.players)
+            throw new IOException("the journal was recorded with a different configuration");
+
+        JournalEvent start = reader.next();
+        if (start == null || start.kind != JournalEvent.GAME_STARTED)
+            throw new IOException("corrupt journal: the game start is missing");
+        for (JournalEvent event = reader.next(); event != null; event = reader.next()) {
+            if (event.isDealerOutput())
+                outputs.add(event);
+            events.add(event);
+        }
+        return start.seed;
+    }
+
+    /**
+     * Replays the game.
+     *
+     * @return - the final scores of the players.
+     * @throws IllegalStateException - if the replayed game diverges from the journal.
+     */
+    public int[] run() {
+        for (JournalEvent event : events) {
+            time = event.time;
+            switch (event.kind) {
+                case JournalEvent.CARD_PLACED:
+                    journaledCards[event.slot] = event.card;
+                    break;
+                case JournalEvent.CARD_REMOVED:
+                    journaledCards[event.slot] = Table.EMPTY;
+                    break;
+                case JournalEvent.ROUND_STARTED:
+                    dealer.dealRound();
+                    break;
+                case JournalEvent.ROUND_ENDED:
+                    dealer.removeAllCardsFromTable();
+                    break;
+                case JournalEvent.TOKEN_PLACED:
+                    // a token placed on a card the replaying dealer already replaced was removed with the card
+                    if (table.slotToCard[event.slot] == journaledCards[event.slot])
+                        table.placeToken(event.player, event.slot);
+                    break;
+                case JournalEvent.TOKEN_REMOVED:
+                    if (table.slotToCard[event.slot] == journaledCards[event.slot])
+                        table.removeToken(event.player, event.slot);
+                    break;
+                case JournalEvent.CLAIM_CHECKED:
+                    dealer.addClaimSet(event.player, event.slots, table.versions(event.player, event.slots));
+                    dealer.checkClaim(dealer.nextClaim());
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (!outputs.isEmpty())
+            throw new IllegalStateException("replay diverged: the journal continues with " + outputs.peek());
+        return Arrays.stream(players).mapToInt(Player::score).toArray();
+    }
+
+    /**
+     * A clock that shows the time of the event being replayed and never waits.
+     */
+    private class ReplayClock implements GameClock {
+        @Override
+        public long currentTimeMillis() {
+            return time;
+        }
+
+        @Override
+        public void sleep(long millis) {}
+
+        @Override
+        public void await(Condition condition, long millis) {}
+    }
+
+    /**
+     * Compares the events caused by the replaying dealer to the journaled ones.
+     */
+    private class Verifier implements GameJournal {
+
+        private void expect(JournalEvent actual) {
+            JournalEvent expected = outputs.poll();
+            if (!actual.equals(expected))
+                throw new IllegalStateException("replay diverged at " + time + " ms: the dealer did " + actual
+                        + " but the journal has " + (expected == null ? "no more dealer events" : expected.toString()));
+        }
+
+        @Override
+        public void cardPlaced(int card, int slot) {
+            expect(new JournalEvent(JournalEvent.CARD_PLACED, time, -1, slot, card, null, 0));
+        }
+
+        @Override
+        public void cardRemoved(int slot) {
+            expect(new JournalEvent(JournalEvent.CARD_REMOVED, time, -1, slot, -1, null, 0));
+        }
+
+        @Override
+        public void point(int player) {
+            expect(new JournalEvent(JournalEvent.POINT, time, player, -1, -1, null, 0));
+        }
+
+        @Override
+        public void penalty(int player) {
+            expect(new JournalEvent(JournalEvent.PENALTY, time, player, -1, -1, null, 0));
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package bguspl.set.ex;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The key presses of a player, waiting to be applied: a bounded ring of slots with a single producer and a single
+ * consumer (the player thread). Queueing and taking a key press allocate nothing, and only a waiting thread is ever
+ * woken up. The producer must be one thread at a time: the AI thread of a computer player, and for a human player the
+ * thread that reads its input (the event dispatch thread, or the network thread of the connection that took its seat).
+ * Concurrent producers would overwrite each other's key presses.
+ */
+final class KeyPressQueue {
+
+    private final int[] slots;
+    private final int mask;
+    private final int capacity;
+
+    /**
+     * The number of key presses taken and queued so far (the next slot to take is at head, the next one to queue at
+     * tail). Only the consumer writes head and only the producer writes tail.
+     */
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * The number of key presses dropped because the queue was full.
+     */
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * The consumer waiting for a key press and the producer waiting for room (if any).
+     */
+    private volatile Thread waitingConsumer;
+    private volatile Thread waitingProducer;
+
+    /**
+     * @param capacity - the maximal number of queued key presses.
+     */
+    KeyPressQueue(int capacity) {
+        this.capacity = capacity;
+        slots = new int[Integer.highestOneBit(Math.max(1, capacity - 1)) << 1];
+        mask = slots.length - 1;
+    }
+
+    /**
+     * Queues a key press, unless the queue is full (never waits).
+     *
+     * @return - true iff the key press was queued.
+     */
+    boolean offer(int slot) {
+        long t = tail.get();
+        if (t - head.get() >= capacity) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        slots[(int) t & mask] = slot;
+        tail.set(t + 1); // publishes the slot
+        LockSupport.unpark(waitingConsumer);
+        return true;
+    }
+
+    /**
+     * Queues a key press, waiting while the queue is full.
+     *
+     * @throws InterruptedException - if the thread is interrupted while waiting.
+     */
+    void put(int slot) throws InterruptedException {
+        while (!offerOrWait(slot))
+            if (Thread.interrupted())
+                throw new InterruptedException();
+    }
+
+    private boolean offerOrWait(int slot) {
+        long t = tail.get();
+        if (t - head.get() < capacity)
+            return offer(slot);
+        waitingProducer = Thread.currentThread();
+        // check again after announcing the wait, since the consumer may have made room before it could see it
+        if (t - head.get() >= capacity)
+            LockSupport.park(this);
+        waitingProducer = null;
+        return false;
+    }
+
+    /**
+     * Takes the oldest key press, waiting until there is one.
+     *
+     * @return - the slot of the key press.
+     * @throws InterruptedException - if the thread is interrupted while waiting.
+     */
+    int take() throws InterruptedException {
+        long h = head.get();
+        while (tail.get() == h) {
+            waitingConsumer = Thread.currentThread();
+            if (tail.get() == h)
+                LockSupport.park(this);
+            waitingConsumer = null;
+            if (Thread.interrupted())
+                throw new InterruptedException();
+        }
+        int slot = slots[(int) h & mask];
+        head.set(h + 1); // frees the slot
+        LockSupport.unpark(waitingProducer);
+        return slot;
+    }
+
+    /**
+     * @return - the number of queued key presses.
+     */
+    int size() {
+        return (int) (tail.get() - head.get());
+    }
+
+    /**
+     * @return - the number of key presses dropped so far because the queue was full.
+     */
+    long dropped() {
+        return dropped.get();
+    }
+}
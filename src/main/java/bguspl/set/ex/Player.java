@@ -1,10 +1,8 @@
 package bguspl.set.ex;
 
-import java.util.Random;
-import java.util.Vector;
-import java.util.List;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 
 import bguspl.set.Env;
@@ -37,16 +35,14 @@ public class Player implements Runnable {
     public final int id;
 
     /*
-     * The of incoming key presses
+     * The incoming key presses.
      */
-    private final BlockingQueue<Integer> incomingActionsQueue;
-
-    private final Vector<Integer> tokens;
+    private final KeyPressQueue incomingActionsQueue;
 
     /**
      * The thread representing the current player.
      */
-    private Thread playerThread;
+    private volatile Thread playerThread;
 
     /**
      * The thread of the AI (computer) player (an additional thread used to generate key presses).
@@ -58,6 +54,11 @@ public class Player implements Runnable {
      */
     private final boolean human;
 
+    /**
+     * How the AI thread chooses the key presses of a computer player (null for a human player).
+     */
+    private final ComputerStrategy strategy;
+
     /**
      * True iff game should be terminated.
      */
@@ -68,12 +69,22 @@ public class Player implements Runnable {
      */
     private int score;
 
-    private long freezeTime; 
+    private volatile long freezeTime;
 
-    private boolean shouldClearQueue;
+    /**
+     * When the current freeze ends (0 if the player thread is not frozen).
+     */
+    private volatile long frozenUntil;
 
     private boolean isChecked;
 
+    /**
+     * True iff the player waits for the dealer to check its claim (the player waits on claimDone until it is done).
+     */
+    private boolean awaitingDealer;
+    private final Lock claimLock = new ReentrantLock();
+    private final Condition claimDone = claimLock.newCondition();
+
     /**
      * The class constructor.
      *
@@ -84,15 +95,27 @@ public class Player implements Runnable {
      * @param human  - true iff the player is a human player (i.e. input is provided manually, via the keyboard).
      */
     public Player(Env env, Dealer dealer, Table table, int id, boolean human) {
+        this(env, dealer, table, id, human, human ? null : ComputerStrategy.create(env));
+    }
+
+    /**
+     * Constructor of a computer player with a given strategy.
+     *
+     * @param strategy - how the computer player chooses its key presses.
+     */
+    public Player(Env env, Dealer dealer, Table table, int id, ComputerStrategy strategy) {
+        this(env, dealer, table, id, false, strategy);
+    }
+
+    private Player(Env env, Dealer dealer, Table table, int id, boolean human, ComputerStrategy strategy) {
         this.env = env;
         this.dealer = dealer;
         this.table = table;
         this.id = id;
         this.human = human;
-        this.incomingActionsQueue = new LinkedBlockingQueue<>(env.config.featureSize);
-        this.tokens = new Vector<>(env.config.featureSize);
+        this.strategy = strategy;
+        this.incomingActionsQueue = new KeyPressQueue(env.config.featureSize);
         freezeTime = -1;
-        shouldClearQueue = false;
         isChecked = false;
     }
 
@@ -106,127 +129,148 @@ public class Player implements Runnable {
         if (!human) createArtificialIntelligence();
 
         while (!terminate) {
-            System.out.println("Player " + id + " started while");
             if (freezeTime > 0)
             {
-                long freezeUntil = System.currentTimeMillis() + freezeTime;
-                while (System.currentTimeMillis() < freezeUntil & !terminate) 
+                long freezeStart = env.clock.currentTimeMillis();
+                long freezeUntil = freezeStart + freezeTime;
+                frozenUntil = freezeUntil;
+                while (env.clock.currentTimeMillis() < freezeUntil & !terminate) 
                 {
-                    env.ui.setFreeze(id, freezeUntil - System.currentTimeMillis());
+                    long remaining = freezeUntil - env.clock.currentTimeMillis();
+                    env.ui.setFreeze(id, remaining);
                     try {
-                        Thread.sleep(1000);
-                    } catch (InterruptedException e) {}
+                        env.clock.sleep(Math.min(remaining, 1000));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt(); // keep the termination interrupt for the blocking calls below
+                    }
                 }
                 freezeTime = 0;
+                frozenUntil = 0;
                 env.ui.setFreeze(id, freezeTime);
+                env.metrics.frozen(env.clock.currentTimeMillis() - freezeStart);
                 // System.out.println("Player: " + id + " woken up from freeze");
             }
 
-            if (dealer.shuffling)
-            {
-                //System.out.println("Player " + id + " is waiting while dealer is Shuffling");
-                while(dealer.shuffling);
-                //System.out.println("Player " + id + " is waking up after Shuffling");
-
+            try {
+                dealer.awaitShuffle();
+            } catch (InterruptedException e) {
+                continue; // woken up for termination
             }
-                
-            
-            
+
             applyAction();
-            if (tokens.size() == env.config.featureSize & !isChecked){
-                synchronized(this){
+            if (table.countTokens(id) == env.config.featureSize & !isChecked){
+                claimLock.lock();
+                try {
+                    awaitingDealer = true;
                     dealer.addClaimSet(id);
-                    synchronized(dealer) {dealer.notifyAll(); }
-                    try {
-                        //System.out.println("Player " + id + " is waiting for dealer to check a set");
-                        this.wait();
-                        //System.out.println("Player " + id + " was woken up by the dealer");
-                    }catch(InterruptedException ignored){}
+                    //System.out.println("Player " + id + " is waiting for dealer to check a set");
+                    while (awaitingDealer && !terminate)
+                        claimDone.await();
+                    //System.out.println("Player " + id + " was woken up by the dealer");
+                } catch (InterruptedException ignored) {
+                    // woken up for termination
+                } finally {
+                    claimLock.unlock();
                 }
             }
         }
-        if (!human) try { aiThread.interrupt();  System.out.println("waiting for aiThread " + id + " to join"); aiThread.join(); System.out.println("aiThread " + id + " joined");} catch (InterruptedException ignored) {}
+        Thread.interrupted(); // clear a termination interrupt that was not consumed by a blocking call
+        if (!human) try { aiThread.interrupt(); aiThread.join(); } catch (InterruptedException ignored) {}
         env.logger.info("thread " + Thread.currentThread().getName() + " terminated.");
         
     }
 
     /**
      * Creates an additional thread for an AI (computer) player. The main loop of this thread repeatedly generates
-     * key presses. If the queue of key presses is full, the thread waits until it is not full.
+     * key presses (see ComputerStrategy). If the queue of key presses is full, the thread waits until it is not full
+     * (unlike keyPressed), and while the player is frozen, it waits until the freeze ends.
      */
     private void createArtificialIntelligence() {
-        // note: this is a very, very smart AI (!)
         aiThread = new Thread(() -> {
             env.logger.info("thread " + Thread.currentThread().getName() + " starting.");
-            Random rand = new Random();
             while (!terminate) {
-                int slot = rand.nextInt(env.config.tableSize);
-                keyPressed(slot);
                 try {
-                    Thread.sleep(700);
-                } catch (InterruptedException ignored) {} 
-             }
+                    if (freezeTime > 0) {
+                        // the key presses of a frozen player are ignored, so there is no point in choosing them
+                        env.clock.sleep(Math.max(1, frozenUntil - env.clock.currentTimeMillis()));
+                        continue;
+                    }
+                    int slot = strategy.nextKeyPress(table, id);
+                    if (slot >= 0)
+                        incomingActionsQueue.put(slot);
+                    long delay = strategy.delayMillis();
+                    if (delay > 0)
+                        env.clock.sleep(delay);
+                } catch (InterruptedException ignored) {}
+            }
             env.logger.info("thread " + Thread.currentThread().getName() + " terminated.");
         }, "computer-" + id);
         aiThread.start();
     }
-    
 
     /**
      * Called when the game should be terminated.
      */
     public void terminate() {
         this.terminate = true;
-        System.out.println("terminating player " + id);
-        if (human)
-            keyPressed(0);
+        // wake the player thread up if it is blocked waiting for an action or for the dealer
+        Thread thread = playerThread;
+        if (thread != null)
+            thread.interrupt();
     }
 
     /**
-     * This method is called when a key is pressed.
+     * This method is called when a key is pressed. It never waits (it is called by the event dispatch thread): the key
+     * press is dropped if the queue of key presses is full (or the player is frozen or is a computer player).
      *
      * @param slot - the slot corresponding to the key pressed.
      */
     public void keyPressed(int slot) { // inserts an action to the queue
-        if (freezeTime <= 0)
-            try{
-                incomingActionsQueue.put(slot);
-            } catch (Exception e) { }
+        offerKeyPress(slot);
+    }
+
+    /**
+     * Like keyPressed, but tells whether the key press was queued (e.g. for the network I/O threads).
+     * The key presses of a computer player are ignored: its AI thread is the only one that queues them (see
+     * KeyPressQueue).
+     *
+     * @param slot - the slot corresponding to the key pressed.
+     * @return - true iff the key press was queued.
+     */
+    public boolean offerKeyPress(int slot) {
+        return human && freezeTime <= 0 && incomingActionsQueue.offer(slot);
+    }
+
+    /**
+     * @return - the number of key presses dropped so far because the queue of key presses was full.
+     */
+    public long droppedKeyPresses() {
+        return incomingActionsQueue.dropped();
     }
 
     private void applyAction() {
-        Integer slot = null;
+        int slot;
         try {
             //System.out.println("Player " + id + " Trying to take action");
+            env.metrics.keyPressTaken(incomingActionsQueue.size());
             slot = incomingActionsQueue.take();
             //System.out.println("Player " + id + " took an action");
-        } catch (InterruptedException e) { }
-        
-
-
-        if (slot == null)
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // keep the termination interrupt so the player does not wait for the dealer
             return;
+        }
+
         //System.out.println("Player " + id + " is trying to apply action");
-        if (tokens.contains(slot)) {
+        if (table.hasToken(id, slot)) {
             if (!table.removeToken(id, slot))
                 env.logger.warning("unable to remove token in " + slot + " by " + id);
-            else{
-                tokens.remove(slot);
+            else
                 isChecked = false;
-            }
         }
-        else if(tokens.size() < env.config.featureSize){
-            
-            if (table.playersTokens[id][slot])
-                env.logger.warning("unable to add token in " + slot + " by " + id);
-            else {
-                table.slotLocks[slot].lock();
-                if (table.slotToCard[slot] != null){
-                    table.placeToken(id, slot);
-                    tokens.add(slot);
-                }
-                table.slotLocks[slot].unlock();   
-            }
+        else if (table.countTokens(id) < env.config.featureSize) {
+            // fails if the slot is empty (e.g. its card was just removed)
+            if (table.placeToken(id, slot))
+                isChecked = false;
         }
         //System.out.println("Player " + id + " applied action");
         // try {
@@ -242,13 +286,26 @@ public class Player implements Runnable {
      */
     public synchronized void point() {
         freezeTime = env.config.pointFreezeMillis;
-        clearTokens();
         int ignored = table.countCards(); // this part is just for demonstration in the unit tests
         isChecked = false;
         env.ui.setScore(id, ++score);
         // System.out.println("Player: " + id + " got 1 point");
     }
 
+    /**
+     * Called by the dealer when it is done checking the player's claim (or when the game terminates): releases the
+     * player if it is waiting for the verdict.
+     */
+    public void claimChecked() {
+        claimLock.lock();
+        try {
+            awaitingDealer = false;
+            claimDone.signalAll();
+        } finally {
+            claimLock.unlock();
+        }
+    }
+
     /**
      * Penalize a player and perform other related actions.
      */
@@ -263,14 +320,11 @@ public class Player implements Runnable {
         return score;
     }
 
-    public synchronized void clearTokens(){
-        tokens.clear();
-        this.isChecked = false;
-    }
-    public List<Integer> getTokens() {
-        synchronized(tokens) {
-            return new Vector<Integer>(tokens);
-        }
+    /**
+     * @return - the slots of the player's tokens, in ascending order.
+     */
+    public int[] getTokens() {
+        return table.getTokens(id);
     }
 
     public void join() {
@@ -0,0 +1,28 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+
+import java.util.Random;
+
+/**
+ * Presses random slots, config.computerPlayerDelayMillis apart (note: this is a very, very smart AI (!)).
+ */
+class RandomStrategy implements ComputerStrategy {
+
+    private final Env env;
+    private final Random random = new Random();
+
+    RandomStrategy(Env env) {
+        this.env = env;
+    }
+
+    @Override
+    public int nextKeyPress(Table table, int player) {
+        return random.nextInt(env.config.tableSize);
+    }
+
+    @Override
+    public long delayMillis() {
+        return env.config.computerPlayerDelayMillis;
+    }
+}
@@ -0,0 +1,131 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A group of cards (e.g. the cards on the table) together with the number of legal sets among them, which is
+ * updated whenever a card is added or removed: the sets a card takes part in are found by looking up the third
+ * card of every pair it makes with the other cards, in time linear in the number of cards.
+ * With features of more than 3 values there is no single third card, and the sets are searched for on demand.
+ * Not thread safe.
+ */
+public class SetIndex {
+
+    private final Env env;
+
+    /**
+     * True iff the number of sets is updated incrementally (i.e. the features have 3 values).
+     */
+    private final boolean incremental;
+
+    /**
+     * The cards in the group (in no particular order), and the position of each card in it (-1 if not in the group).
+     */
+    private final int[] cards;
+    private final int[] position;
+    private int size;
+
+    /**
+     * The number of legal sets among the cards in the group (only if incremental).
+     */
+    private long sets;
+
+    /**
+     * Creates an empty group.
+     *
+     * @param env - the game environment object.
+     */
+    public SetIndex(Env env) {
+        this.env = env;
+        incremental = env.config.featureSize == 3;
+        cards = new int[env.config.deckSize];
+        position = new int[env.config.deckSize];
+        Arrays.fill(position, -1);
+    }
+
+    /**
+     * Adds a card to the group (does nothing if it is already in it).
+     *
+     * @param card - the card to add.
+     */
+    public void add(int card) {
+        if (position[card] != -1)
+            return;
+        if (incremental)
+            sets += countSetsWith(card);
+        position[card] = size;
+        cards[size++] = card;
+    }
+
+    /**
+     * Removes a card from the group (does nothing if it is not in it).
+     *
+     * @param card - the card to remove.
+     */
+    public void remove(int card) {
+        int index = position[card];
+        if (index == -1)
+            return;
+        int last = cards[--size];
+        cards[index] = last;
+        position[last] = index;
+        position[card] = -1;
+        if (incremental)
+            sets -= countSetsWith(card);
+    }
+
+    /**
+     * Counts the sets a card (not in the group) makes with the pairs of cards in the group.
+     */
+    private long countSetsWith(int card) {
+        long count = 0;
+        for (int i = 0; i < size; i++) {
+            int other = cards[i];
+            int third = env.util.thirdCard(card, other);
+            // count each pair once: from its card that is earlier in the group
+            if (third >= 0 && position[third] > i)
+                count++;
+        }
+        return count;
+    }
+
+    /**
+     * @param card - the card.
+     * @return - true iff the card is in the group.
+     */
+    public boolean contains(int card) {
+        return position[card] != -1;
+    }
+
+    /**
+     * @return - the number of cards in the group.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return - the number of legal sets among the cards in the group.
+     */
+    public long countSets() {
+        return incremental ? sets : env.util.findSets(toList(), Integer.MAX_VALUE).size();
+    }
+
+    /**
+     * @return - true iff there is a legal set among the cards in the group.
+     */
+    public boolean hasSet() {
+        return incremental ? sets > 0 : !env.util.findSets(toList(), 1).isEmpty();
+    }
+
+    private List<Integer> toList() {
+        List<Integer> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+            list.add(cards[i]);
+        return list;
+    }
+}
@@ -0,0 +1,96 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Plays like a person: looks at the table for a reaction time (log-normally distributed, with the configured median
+ * and spread), and if it found a set, presses the slots of the player's tokens that are not on the set and then the
+ * slots of the set, config.computerPlayerDelayMillis apart. It presses nothing while there is no set on the table, or
+ * while its tokens are on a set (waiting for the dealer), so it never makes a claim that is not a set, unless the
+ * cards are changed while it presses.
+ */
+class SolverStrategy implements ComputerStrategy {
+
+    private final Env env;
+    private final Random random = new Random();
+
+    /**
+     * The key presses planned (slots, and the card expected in each slot) and the next one to press.
+     */
+    private int[] planSlots = new int[0];
+    private int[] planCards = new int[0];
+    private int next;
+
+    private long delay;
+
+    SolverStrategy(Env env) {
+        this.env = env;
+    }
+
+    @Override
+    public int nextKeyPress(Table table, int player) {
+        if (next < planSlots.length) {
+            int slot = planSlots[next];
+            // give up the plan if its card was changed (the next plan is made after another look at the table)
+            if (table.cardAt(slot) == planCards[next]) {
+                next++;
+                delay = env.config.computerPlayerDelayMillis;
+                return slot;
+            }
+            planSlots = new int[0];
+        }
+        plan(table, player);
+        delay = reactionMillis();
+        return -1;
+    }
+
+    @Override
+    public long delayMillis() {
+        return delay;
+    }
+
+    /**
+     * Looks for a set on the table and plans the key presses that put the player's tokens on it.
+     */
+    private void plan(Table table, int player) {
+        int[] cards = table.cards();
+        List<Integer> onTable = new ArrayList<>();
+        int[] cardToSlot = new int[env.config.deckSize];
+        for (int slot = 0; slot < cards.length; slot++)
+            if (cards[slot] != Table.EMPTY) {
+                onTable.add(cards[slot]);
+                cardToSlot[cards[slot]] = slot;
+            }
+        List<int[]> sets = env.util.findSets(onTable, 1);
+        next = 0;
+        if (sets.isEmpty()) {
+            planSlots = new int[0];
+            return;
+        }
+
+        int[] setSlots = Arrays.stream(sets.get(0)).map(card -> cardToSlot[card]).sorted().toArray();
+        int[] tokens = table.getTokens(player);
+        List<Integer> presses = new ArrayList<>();
+        for (int slot : tokens)
+            if (Arrays.binarySearch(setSlots, slot) < 0)
+                presses.add(slot); // removes the token
+        for (int slot : setSlots)
+            if (Arrays.binarySearch(tokens, slot) < 0)
+                presses.add(slot);
+        planSlots = presses.stream().mapToInt(Integer::intValue).toArray();
+        planCards = Arrays.stream(planSlots).map(slot -> cards[slot]).toArray();
+    }
+
+    /**
+     * @return - a random reaction time: the configured median times e to the power of a normally distributed number
+     *           with the configured spread as its standard deviation.
+     */
+    private long reactionMillis() {
+        return Math.max(1, Math.round(env.config.computerReactionMillis * Math.exp(env.config.computerReactionSpread * random.nextGaussian())));
+    }
+}
@@ -4,52 +4,87 @@ import bguspl.set.Env;
 
 import java.util.Arrays;
 import java.util.List;
-import java.util.Objects;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.StampedLock;
 import java.util.stream.Collectors;
-import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * This class contains the data that is visible to the player.
+ * Only the dealer changes the cards on the table, and each slot has its own lock: the dealer locks a slot exclusively
+ * while it places or removes its card, and a player locks it in shared mode while it places or removes its own token,
+ * so that players never wait for each other, and wait for the dealer only while it changes the card of the same slot.
+ * Reads take no lock (see getCardsOfPlayer), and the version of each slot tells whether its card was changed since.
  *
  * @inv slotToCard[x] == y iff cardToSlot[y] == x
  */
 public class Table {
 
+    /**
+     * The value of an empty slot in slotToCard, and of a card that is not on the table in cardToSlot.
+     */
+    public static final int EMPTY = -1;
+
     /**
      * The game environment object.
      */
     private final Env env;
 
     /**
-     * Mapping between a slot and the card placed in it (null if none).
+     * Mapping between a slot and the card placed in it (EMPTY if none).
      */
-    protected final Integer[] slotToCard; // card per slot (if any)
+    protected final int[] slotToCard; // card per slot (if any)
 
     /**
-     * Mapping between a card and the slot it is in (null if none).
+     * Mapping between a card and the slot it is in (EMPTY if none).
      */
-    protected final Integer[] cardToSlot; // slot per card (if any)
+    protected final int[] cardToSlot; // slot per card (if any)
 
-    public final boolean[][] playersTokens; // 2d array that holds the token of each player
+    /**
+     * The tokens of each player as a bitmask of slots: tokenWords consecutive words per player, bit (slot % 64) of
+     * word (slot / 64) is set iff the player has a token on the slot.
+     */
+    private final AtomicLongArray tokens;
+    private final int tokenWords;
+
+    /**
+     * The cards on the table and the number of legal sets among them.
+     */
+    private final SetIndex sets;
+
+    /**
+     * The lock of each slot: exclusive for changing its card, shared for changing a token on it.
+     */
+    private final StampedLock[] slotLocks;
+
+    /**
+     * The version of each slot: incremented (after its tokens were removed) whenever its card is placed or removed.
+     */
+    private final AtomicIntegerArray versions;
 
-    public final ReentrantLock[] slotLocks;
     /**
      * Constructor for testing.
      *
      * @param env        - the game environment objects.
-     * @param slotToCard - mapping between a slot and the card placed in it (null if none).
-     * @param cardToSlot - mapping between a card and the slot it is in (null if none).
+     * @param slotToCard - mapping between a slot and the card placed in it (EMPTY if none).
+     * @param cardToSlot - mapping between a card and the slot it is in (EMPTY if none).
      */
-    public Table(Env env, Integer[] slotToCard, Integer[] cardToSlot) {
+    public Table(Env env, int[] slotToCard, int[] cardToSlot) {
 
         this.env = env;
         this.slotToCard = slotToCard;
         this.cardToSlot = cardToSlot;
-        this.playersTokens = new boolean[env.config.players][env.config.tableSize];
-        slotLocks = new ReentrantLock[env.config.tableSize];
+        tokenWords = (env.config.tableSize + Long.SIZE - 1) / Long.SIZE;
+        tokens = new AtomicLongArray(env.config.players * tokenWords);
+        slotLocks = new StampedLock[env.config.tableSize];
         for (int i = 0; i < slotLocks.length; i++) {
-            slotLocks[i] = new ReentrantLock(true);
+            slotLocks[i] = new StampedLock();
         }
+        versions = new AtomicIntegerArray(env.config.tableSize);
+        sets = new SetIndex(env);
+        for (int card : slotToCard)
+            if (card != EMPTY)
+                sets.add(card);
     }
 
     /**
@@ -59,15 +94,27 @@ public class Table {
      */
     public Table(Env env) {
 
-        this(env, new Integer[env.config.tableSize], new Integer[env.config.deckSize]);
+        this(env, emptyArray(env.config.tableSize), emptyArray(env.config.deckSize));
+    }
+
+    private static int[] emptyArray(int length) {
+        int[] array = new int[length];
+        Arrays.fill(array, EMPTY);
+        return array;
     }
 
     /**
      * This method prints all possible legal sets of cards that are currently on the table.
      */
     public void hints() {
-        List<Integer> deck = Arrays.stream(slotToCard).filter(Objects::nonNull).collect(Collectors.toList());
-        env.util.findSets(deck, Integer.MAX_VALUE).forEach(set -> {
+        if (!sets.hasSet())
+            return;
+        List<Integer> deck = Arrays.stream(slotToCard).filter(card -> card != EMPTY).boxed().collect(Collectors.toList());
+        long start = env.metrics.enabled() ? System.nanoTime() : 0;
+        List<int[]> found = env.util.findSets(deck, Integer.MAX_VALUE);
+        if (env.metrics.enabled())
+            env.metrics.setsSearched(System.nanoTime() - start);
+        found.forEach(set -> {
             StringBuilder sb = new StringBuilder().append("Hint: Set found: ");
             List<Integer> slots = Arrays.stream(set).mapToObj(card -> cardToSlot[card]).sorted().collect(Collectors.toList());
             int[][] features = env.util.cardsToFeatures(set);
@@ -75,6 +122,35 @@ public class Table {
         });
     }
 
+    /**
+     * @return - true iff there is a legal set among the cards on the table.
+     */
+    public boolean hasSet() {
+        return sets.hasSet();
+    }
+
+    /**
+     * @return - the number of legal sets among the cards on the table.
+     */
+    public long countSets() {
+        return sets.countSets();
+    }
+
+    /**
+     * @param slot - the slot.
+     * @return - the card in the slot (EMPTY if none).
+     */
+    public int cardAt(int slot) {
+        return slotToCard[slot];
+    }
+
+    /**
+     * @return - a copy of the card in each slot (EMPTY if none); the dealer may change cards while it is taken.
+     */
+    public int[] cards() {
+        return slotToCard.clone();
+    }
+
     /**
      * Count the number of cards currently on the table.
      *
@@ -82,9 +158,8 @@ public class Table {
      */
     public int countCards() {
         int cards = 0;
-        for (Integer card : slotToCard)
-            if (card != null)
-                ++cards;
+        for (int card : slotToCard)
+            cards += (card >>> 31) ^ 1; // 1 for any card id, 0 for EMPTY
         return cards;
     }
 
@@ -97,14 +172,22 @@ public class Table {
      */
     public void placeCard(int card, int slot) {
         try {
-            Thread.sleep(env.config.tableDelayMillis);
+            if (env.config.tableDelayMillis > 0)
+                env.clock.sleep(env.config.tableDelayMillis);
         } catch (InterruptedException ignored) {}
 
-        cardToSlot[card] = slot;
-        slotToCard[slot] = card;
+        long stamp = slotLocks[slot].writeLock();
+        try {
+            cardToSlot[card] = slot;
+            slotToCard[slot] = card;
+            sets.add(card);
+            versions.incrementAndGet(slot);
 
-        env.ui.placeCard(card, slot);
-        slotLocks[slot].unlock();
+            env.journal.cardPlaced(card, slot);
+            env.ui.placeCard(card, slot);
+        } finally {
+            slotLocks[slot].unlockWrite(stamp);
+        }
     }
 
     /**
@@ -112,34 +195,49 @@ public class Table {
      * @param slot - the slot from which to remove the card.
      */
     public void removeCard(int slot) {
-        slotLocks[slot].lock();
-            try {
-                Thread.sleep(env.config.tableDelayMillis);
-            } catch (InterruptedException ignored) {}
-            for (int i = 0; i < playersTokens.length; i++) {
-                playersTokens[i][slot] = false;
-                env.ui.removeToken(i, slot);
+        try {
+            if (env.config.tableDelayMillis > 0)
+                env.clock.sleep(env.config.tableDelayMillis);
+        } catch (InterruptedException ignored) {}
+
+        long stamp = slotLocks[slot].writeLock();
+        try {
+            for (int player = 0; player < env.config.players; player++) {
+                if (clearToken(player, slot))
+                    env.ui.removeToken(player, slot);
             }
             int card = slotToCard[slot];
-            slotToCard[slot] = null;
-            cardToSlot[card] = null; 
+            slotToCard[slot] = EMPTY;
+            cardToSlot[card] = EMPTY;
+            sets.remove(card);
+            versions.incrementAndGet(slot);
 
+            env.journal.cardRemoved(slot);
             env.ui.removeCard(slot);
-        
+        } finally {
+            slotLocks[slot].unlockWrite(stamp);
+        }
     }
 
     /**
      * Places a player token on a grid slot.
      * @param player - the player the token belongs to.
      * @param slot   - the slot on which to place the token.
+     * @return       - true iff a token was placed (i.e. there is a card in the slot and the player had no token on it).
      */
-    public void placeToken(int player, int slot) {
-        slotLocks[slot].lock();
-        if (slotToCard[slot] != null){
-            playersTokens[player][slot] = true;
-            env.ui.placeToken(player, slot);
+    public boolean placeToken(int player, int slot) {
+        long stamp = readLock(slot);
+        try {
+            // the shared lock keeps the card (and the journal order of the token and the card) while the token is placed
+            boolean placed = slotToCard[slot] != EMPTY && setToken(player, slot);
+            if (placed) {
+                env.journal.tokenPlaced(player, slot);
+                env.ui.placeToken(player, slot);
+            }
+            return placed;
+        } finally {
+            slotLocks[slot].unlockRead(stamp);
         }
-        slotLocks[slot].unlock();   
     }
 
     /**
@@ -149,29 +247,171 @@ public class Table {
      * @return       - true iff a token was successfully removed.
      */
     public boolean removeToken(int player, int slot) {
-        slotLocks[slot].lock();
-        if (!playersTokens[player][slot]){
-            slotLocks[slot].unlock();
-            return false;
+        long stamp = readLock(slot);
+        try {
+            boolean removed = clearToken(player, slot);
+            if (removed) {
+                env.journal.tokenRemoved(player, slot);
+                env.ui.removeToken(player, slot);
+            }
+            return removed;
+        } finally {
+            slotLocks[slot].unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Locks a slot in shared mode (for a player), and reports how long the player waited if it had to.
+     *
+     * @return - the stamp of the lock.
+     */
+    private long readLock(int slot) {
+        long stamp = slotLocks[slot].tryReadLock();
+        if (stamp == 0) {
+            long start = System.nanoTime();
+            stamp = slotLocks[slot].readLock();
+            env.metrics.slotLockBlocked(System.nanoTime() - start);
         }
-        playersTokens[player][slot] = false;
-        env.ui.removeToken(player, slot);
-        slotLocks[slot].unlock();
-        return true;
+        return stamp;
     }
 
+    /**
+     * @param player - the player.
+     * @param slot   - the slot.
+     * @return - true iff the player has a token on the slot.
+     */
+    public boolean hasToken(int player, int slot) {
+        return (tokens.get(player * tokenWords + (slot >>> 6)) & (1L << slot)) != 0;
+    }
+
+    /**
+     * @param slot - the slot.
+     * @return - the version of the slot (it changes whenever the card in the slot changes).
+     */
+    public int version(int slot) {
+        return versions.get(slot);
+    }
+
+    /**
+     * Takes the versions of the slots of a player's tokens (e.g. for a claim, so that the dealer can tell whether the
+     * cards were changed since without locking the slots).
+     *
+     * @param player - the player.
+     * @param slots  - slots the player has tokens on.
+     * @return - the version of each slot, or -1 for a slot the player no longer has a token on.
+     */
+    public int[] versions(int player, int[] slots) {
+        int[] slotVersions = new int[slots.length];
+        for (int i = 0; i < slots.length; i++)
+            slotVersions[i] = version(player, slots[i]);
+        return slotVersions;
+    }
+
+    /**
+     * @param player - the player.
+     * @param slot   - a slot the player has a token on.
+     * @return - the version of the slot, or -1 if the player no longer has a token on it.
+     */
+    public int version(int player, int slot) {
+        // the token is removed before the version changes, so a token that is still there belongs to this version
+        int version = versions.get(slot);
+        return hasToken(player, slot) ? version : -1;
+    }
+
+    /**
+     * @param player - the player.
+     * @return - the number of tokens the player has on the table.
+     */
+    public int countTokens(int player) {
+        int count = 0;
+        for (int i = player * tokenWords, end = i + tokenWords; i < end; i++)
+            count += Long.bitCount(tokens.get(i));
+        return count;
+    }
+
+    /**
+     * @param player - the player.
+     * @return - the slots the player has tokens on, in ascending order.
+     */
+    public int[] getTokens(int player) {
+        int[] slots = new int[countTokens(player)];
+        int count = getTokens(player, slots, 0, slots.length);
+        return count == slots.length ? slots : Arrays.copyOf(slots, count);
+    }
+
+    /**
+     * Copies the slots a player has tokens on (without allocating).
+     *
+     * @param player - the player.
+     * @param slots  - the array to copy the slots to, in ascending order.
+     * @param offset - where to copy the first slot.
+     * @param max    - the maximal number of slots to copy.
+     * @return - the number of slots copied.
+     */
+    public int getTokens(int player, int[] slots, int offset, int max) {
+        int count = 0;
+        for (int word = 0; word < tokenWords && count < max; word++)
+            for (long bits = tokens.get(player * tokenWords + word); bits != 0 && count < max; bits &= bits - 1)
+                slots[offset + count++] = word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+        return count;
+    }
+
+    /**
+     * @param id - the player.
+     * @return - the cards the player has tokens on (at most featureSize of them), or null if there are none.
+     */
     public int[] getCardsOfPlayer(int id) {
+        int[] slots = getTokens(id);
+        if (slots.length == 0)
+            return null;
         int[] cards = new int[env.config.featureSize];
         int cardsCounter = 0;
-        for (int slot = 0; slot < playersTokens[id].length; slot++)
-        {
-            slotLocks[slot].lock();
-            if (playersTokens[id][slot]) {
-                cards[cardsCounter++] = slotToCard[slot];
-            }
-            slotLocks[slot].unlock();
+        for (int i = 0; i < slots.length && cardsCounter < cards.length; i++) {
+            int card = readCardWithToken(id, slots[i]);
+            if (card != EMPTY)
+                cards[cardsCounter++] = card;
         }
 
         return cardsCounter == 0 ? null : cards;
     }
+
+    /**
+     * Reads the card in a slot if the player has a token on it, without locking the slot (unless the dealer keeps
+     * changing its card): the read is retried if the card changed while it was read.
+     *
+     * @return - the card, or EMPTY if the player has no token on the slot.
+     */
+    private int readCardWithToken(int player, int slot) {
+        StampedLock lock = slotLocks[slot];
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            int card = hasToken(player, slot) ? slotToCard[slot] : EMPTY;
+            if (lock.validate(stamp))
+                return card;
+        }
+        stamp = lock.readLock();
+        try {
+            return hasToken(player, slot) ? slotToCard[slot] : EMPTY;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Sets the bit of a player's token on a slot.
+     * @return - true iff the bit was not set before.
+     */
+    private boolean setToken(int player, int slot) {
+        long bit = 1L << slot;
+        return (tokens.getAndAccumulate(player * tokenWords + (slot >>> 6), bit, (word, b) -> word | b) & bit) == 0;
+    }
+
+    /**
+     * Clears the bit of a player's token on a slot.
+     * @return - true iff the bit was set before.
+     */
+    private boolean clearToken(int player, int slot) {
+        long bit = 1L << slot;
+        return (tokens.getAndAccumulate(player * tokenWords + (slot >>> 6), bit, (word, b) -> word & ~b) & bit) != 0;
+    }
 }
@@ -0,0 +1,106 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.SimpleFormatter;
+import java.util.logging.StreamHandler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AsyncLogHandlerTest {
+
+    static class CollectingHandler extends Handler {
+        final List<String> messages = new ArrayList<>();
+        int flushes;
+
+        @Override
+        public synchronized void publish(LogRecord record) {
+            messages.add(record.getMessage());
+        }
+
+        @Override
+        public synchronized void flush() {
+            flushes++;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Test
+    void flushWritesEverythingInOrder() {
+        CollectingHandler target = new CollectingHandler();
+        AsyncLogHandler handler = new AsyncLogHandler(target);
+
+        for (int i = 0; i < 1000; i++)
+            handler.publish(new LogRecord(Level.INFO, "record " + i));
+        handler.flush();
+
+        synchronized (target) {
+            assertEquals(1000, target.messages.size());
+            for (int i = 0; i < 1000; i++)
+                assertEquals("record " + i, target.messages.get(i));
+            assertTrue(target.flushes <= 1001);
+        }
+        handler.close();
+    }
+
+    @Test
+    void setLevelAppliesToTheTarget() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        AsyncLogHandler handler = new AsyncLogHandler(new StreamHandler(bytes, new SimpleFormatter()));
+        handler.setLevel(Level.ALL);
+
+        handler.publish(new LogRecord(Level.FINE, "fine record"));
+        handler.flush();
+
+        assertTrue(bytes.toString().contains("fine record"));
+        handler.close();
+    }
+
+    @Test
+    void fullBufferDropsAndReports() throws InterruptedException {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CollectingHandler target = new CollectingHandler() {
+            @Override
+            public void publish(LogRecord record) {
+                writing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ignored) {
+                }
+                super.publish(record);
+            }
+        };
+        AsyncLogHandler handler = new AsyncLogHandler(target, 2);
+
+        handler.publish(new LogRecord(Level.INFO, "first"));
+        writing.await(); // the writer is stuck on the first record, the buffer is empty
+        for (int i = 0; i < 5; i++)
+            handler.publish(new LogRecord(Level.INFO, "queued " + i));
+        release.countDown();
+        handler.flush();
+        handler.publish(new LogRecord(Level.INFO, "last"));
+        handler.flush();
+
+        synchronized (target) {
+            assertEquals(5, target.messages.size());
+            assertEquals("first", target.messages.get(0));
+            assertEquals("log buffer was full: 3 log records were dropped", target.messages.get(1));
+            assertEquals("queued 0", target.messages.get(2));
+            assertEquals("queued 1", target.messages.get(3));
+            assertEquals("last", target.messages.get(4));
+        }
+        handler.close();
+    }
+}
@@ -0,0 +1,97 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CardAtlasTest {
+
+    @TempDir
+    File cache;
+
+    private static Logger logger() {
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        logger.setLevel(Level.OFF);
+        return logger;
+    }
+
+    private static Config config(int featureCount) {
+        Properties properties = new Properties();
+        properties.setProperty("FeatureCount", Integer.toString(featureCount));
+        return new Config(logger(), properties);
+    }
+
+    private static BufferedImage drawCard(CardAtlas atlas, Config config, int card) {
+        BufferedImage cell = new BufferedImage(config.cellWidth, config.cellHeight, BufferedImage.TYPE_INT_ARGB);
+        Graphics g = cell.getGraphics();
+        assertTrue(atlas.draw(g, card, 0, 0));
+        g.dispose();
+        return cell;
+    }
+
+    private static void assertSameImage(BufferedImage expected, BufferedImage actual) {
+        for (int y = 0; y < expected.getHeight(); y += 7)
+            for (int x = 0; x < expected.getWidth(); x += 7)
+                assertEquals(expected.getRGB(x, y), actual.getRGB(x, y), "pixel " + x + "," + y);
+    }
+
+    @Test
+    void draw_DrawsTheCardImage() throws IOException {
+        Config config = config(4);
+        CardAtlas atlas = new CardAtlas(logger(), config, "test", cache);
+        atlas.await();
+
+        BufferedImage expected;
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream("cards/0121.png")) {
+            expected = ImageIO.read(in);
+        }
+        assertSameImage(expected, drawCard(atlas, config, Integer.parseInt("0121", 3)));
+        atlas.awaitSaved();
+    }
+
+    @Test
+    void await_ReadsTheAtlasFromTheCache() {
+        Config config = config(4);
+        CardAtlas built = new CardAtlas(logger(), config, "test", cache);
+        built.awaitSaved();
+        assertEquals(1, cachedAtlases().length);
+
+        CardAtlas cached = new CardAtlas(logger(), config, "test", cache);
+        cached.await();
+        for (int card : new int[]{0, 40, 80, -1})
+            assertSameImage(drawCard(built, config, card), drawCard(cached, config, card));
+        cached.awaitSaved();
+    }
+
+    @Test
+    void await_DrawsCardsWithoutImages() {
+        // there are images only for decks of 4 features
+        Config config = config(5);
+        CardAtlas atlas = new CardAtlas(logger(), config, "test", cache);
+        BufferedImage image = atlas.await();
+        int cells = (image.getWidth() / config.cellWidth) * (image.getHeight() / config.cellHeight);
+        assertTrue(cells >= config.deckSize + 1, cells + " cells");
+        drawCard(atlas, config, config.deckSize - 1);
+        atlas.awaitSaved();
+        // the placeholders are not saved
+        assertEquals(0, cachedAtlases().length);
+    }
+
+    private File[] cachedAtlases() {
+        File[] files = cache.listFiles((directory, name) -> name.startsWith("test-") && name.endsWith(".png"));
+        return files == null ? new File[0] : files;
+    }
+}
@@ -0,0 +1,78 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FrameUpdatesTest {
+
+    private FrameUpdates pending;
+    private FrameUpdates frame;
+
+    @BeforeEach
+    void setUp() {
+        Properties properties = new Properties();
+        properties.setProperty("HumanPlayers", "2");
+        properties.setProperty("ComputerPlayers", "0");
+        Config config = new Config(Logger.getAnonymousLogger(), properties);
+        pending = new FrameUpdates(config);
+        frame = new FrameUpdates(config);
+    }
+
+    @Test
+    void moveChangesTo_NothingChanged() {
+        assertFalse(pending.moveChangesTo(frame));
+    }
+
+    @Test
+    void moveChangesTo_CoalescesChangesOfTheSameSlot() {
+        // a reshuffle: the card of a slot is removed and replaced, and its tokens are removed
+        pending.placeCard(3, 5);
+        pending.placeToken(0, 5);
+        pending.placeToken(1, 5);
+        pending.removeCard(5);
+        pending.removeTokens();
+        pending.placeCard(8, 5);
+        pending.setCountdown(3000, false);
+        pending.setCountdown(2000, true);
+
+        assertTrue(pending.moveChangesTo(frame));
+        assertEquals(1, frame.changedCards.cardinality());
+        assertEquals(8, frame.cards[5]);
+        assertEquals(12, frame.changedTokens.cardinality());
+        assertArrayEquals(new boolean[]{false, false}, frame.tokens[5]);
+        assertTrue(frame.changedTimer);
+        assertEquals(2000, frame.timerMillies);
+        assertTrue(frame.timerWarn);
+        assertFalse(frame.changedWinners);
+
+        // the changes were moved
+        assertFalse(pending.moveChangesTo(frame));
+    }
+
+    @Test
+    void moveChangesTo_MovesOnlyNewChanges() {
+        pending.setScore(0, 1);
+        pending.setFreeze(1, 1000);
+        pending.moveChangesTo(frame);
+        frame.clearChanges();
+
+        pending.setScore(1, 2);
+        pending.announceWinner(new int[]{1});
+        assertTrue(pending.moveChangesTo(frame));
+        assertEquals(1, frame.changedScores.cardinality());
+        assertTrue(frame.changedScores.get(1));
+        assertEquals(2, frame.scores[1]);
+        assertTrue(frame.changedFreezes.isEmpty());
+        assertFalse(frame.changedTimer);
+        assertTrue(frame.changedWinners);
+        assertArrayEquals(new int[]{1}, frame.winners);
+    }
+}
@@ -0,0 +1,74 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameHostTest {
+
+    private static Config config(boolean simulation) {
+        Logger logger = logger();
+        Properties properties = new Properties();
+        properties.setProperty("Simulation", Boolean.toString(simulation));
+        properties.setProperty("HumanPlayers", "0");
+        properties.setProperty("ComputerPlayers", "2");
+        properties.setProperty("TurnTimeoutWarningSeconds", "5");
+        properties.setProperty("PointFreezeSeconds", "0");
+        properties.setProperty("PenaltyFreezeSeconds", "0");
+        properties.setProperty("EndGamePauseSeconds", "0");
+        return new Config(logger, properties);
+    }
+
+    private static Logger logger() {
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        logger.setLevel(Level.OFF);
+        return logger;
+    }
+
+    @Test
+    void start_PlaysGamesConcurrently() throws Exception {
+        GameHost host = new GameHost(logger(), config(true), 3);
+        List<GameHost.Game> games = new ArrayList<>();
+        for (int i = 0; i < 8; i++)
+            games.add(host.start());
+
+        for (GameHost.Game game : games) {
+            int[] scores = game.await();
+            assertEquals(2, scores.length);
+            assertTrue(game.isDone());
+        }
+        host.shutdown();
+        assertTrue(host.awaitTermination(10, TimeUnit.SECONDS));
+
+        GameHost.Stats stats = host.stats();
+        assertEquals(8, stats.started);
+        assertEquals(8, stats.finished);
+        assertEquals(0, stats.failed);
+        assertEquals(0, host.activeGames());
+    }
+
+    @Test
+    void terminate_EndsRunningAndWaitingGames() throws Exception {
+        // real-time games with 60 second turns would not end by themselves within the test
+        GameHost host = new GameHost(logger(), config(false), 1);
+        GameHost.Game playing = host.start();
+        GameHost.Game waiting = host.start();
+
+        host.terminate();
+        assertTrue(host.awaitTermination(30, TimeUnit.SECONDS));
+        assertTrue(playing.isDone());
+        assertTrue(waiting.isDone());
+        assertEquals(2, host.stats().finished);
+        assertThrows(IllegalStateException.class, host::start);
+    }
+}
@@ -0,0 +1,48 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HistogramTest {
+
+    @Test
+    void bucket_SmallValuesAreExact() {
+        for (int value = 0; value < 32; value++)
+            assertEquals(value, Histogram.highestValue(Histogram.bucket(value)));
+    }
+
+    @Test
+    void bucket_BoundedRelativeError() {
+        for (long value = 1; value > 0 && value < Long.MAX_VALUE / 3; value = value * 3 + 1) {
+            long highest = Histogram.highestValue(Histogram.bucket(value));
+            assertTrue(highest >= value, "bucket of " + value + " ends at " + highest);
+            assertTrue(highest - value <= value / 16, "bucket of " + value + " ends at " + highest);
+        }
+        assertEquals(Long.MAX_VALUE, Histogram.highestValue(Histogram.bucket(Long.MAX_VALUE)));
+    }
+
+    @Test
+    void snapshot_Percentiles() {
+        Histogram histogram = new Histogram();
+        for (int value = 1; value <= 1000; value++)
+            histogram.record(value);
+
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(1000, snapshot.count);
+        assertEquals(500, snapshot.mean());
+        assertEquals(1000, snapshot.max);
+        assertTrue(Math.abs(snapshot.percentile(50) - 500) <= 500 / 16);
+        assertTrue(Math.abs(snapshot.percentile(99) - 990) <= 990 / 16);
+        assertEquals(1000, snapshot.percentile(100));
+    }
+
+    @Test
+    void snapshot_Empty() {
+        Histogram.Snapshot snapshot = new Histogram().snapshot();
+        assertEquals(0, snapshot.count);
+        assertEquals(0, snapshot.mean());
+        assertEquals(0, snapshot.percentile(99));
+    }
+}
@@ -0,0 +1,46 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class JournalWriterTest {
+
+    @Test
+    void close_WritesAllEventsInOrder() throws IOException {
+        Config config = new Config(Logger.getAnonymousLogger(), new Properties());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        JournalWriter journal = new JournalWriter(bytes, config, GameClock.SYSTEM);
+        journal.gameStarted(42);
+        // enough events to fill many buffers
+        for (int i = 0; i < 100_000; i++) {
+            journal.tokenPlaced(i % config.players, i % config.tableSize);
+            if (i % 1000 == 0)
+                journal.claimChecked(i % config.players, new int[]{0, 1, i % config.tableSize});
+        }
+        journal.gameEnded();
+        journal.close();
+
+        JournalReader reader = new JournalReader(new ByteArrayInputStream(bytes.toByteArray()));
+        assertEquals(config.tableSize, reader.tableSize);
+        assertEquals(42, reader.next().seed);
+        for (int i = 0; i < 100_000; i++) {
+            JournalEvent event = reader.next();
+            assertEquals(JournalEvent.TOKEN_PLACED, event.kind);
+            assertEquals(i % config.players, event.player);
+            assertEquals(i % config.tableSize, event.slot);
+            if (i % 1000 == 0)
+                assertArrayEquals(new int[]{0, 1, i % config.tableSize}, reader.next().slots);
+        }
+        assertEquals(JournalEvent.GAME_ENDED, reader.next().kind);
+        assertNull(reader.next());
+    }
+}
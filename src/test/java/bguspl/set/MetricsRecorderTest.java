@@ -0,0 +1,80 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetricsRecorderTest {
+
+    private static Logger logger() {
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        logger.setLevel(Level.OFF);
+        return logger;
+    }
+
+    @Test
+    void snapshot_MeasuresGames() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("Simulation", "True");
+        properties.setProperty("HumanPlayers", "0");
+        properties.setProperty("ComputerPlayers", "2");
+        properties.setProperty("PointFreezeSeconds", "0");
+        properties.setProperty("PenaltyFreezeSeconds", "0");
+        properties.setProperty("EndGamePauseSeconds", "0");
+        Config config = new Config(logger(), properties);
+        MetricsRecorder metrics = new MetricsRecorder();
+        GameHost host = new GameHost(logger(), config, 2, metrics);
+        for (int i = 0; i < 2; i++)
+            host.start();
+        host.shutdown();
+        assertTrue(host.awaitTermination(1, TimeUnit.MINUTES));
+
+        Map<String, Long> snapshot = metrics.snapshot();
+        assertTrue(snapshot.get("claims") > 0);
+        assertEquals(snapshot.get("claims"), snapshot.get("claimLatencyNanos.count"));
+        assertTrue(snapshot.get("claimLatencyNanos.p99") <= snapshot.get("claimLatencyNanos.max"));
+        assertTrue(snapshot.get("testSetNanos.count") <= snapshot.get("claims"));
+        assertTrue(snapshot.get("claimQueueDepth.count") >= snapshot.get("claims"));
+        assertTrue(snapshot.get("keyQueueOccupancy.count") > 0);
+    }
+
+    @Test
+    void writeTo_OneLinePerMetric(@TempDir Path directory) throws Exception {
+        MetricsRecorder metrics = new MetricsRecorder();
+        metrics.claimChecked(1500, false);
+        Path file = directory.resolve("metrics.properties");
+        metrics.writeTo(file);
+
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(metrics.snapshot().size() + 1, lines.size());
+        assertTrue(lines.contains("claims=1"));
+        assertTrue(lines.contains("claimLatencyNanos.max=1500"));
+    }
+
+    @Test
+    void registerMBean_ExportsMetrics() throws Exception {
+        MetricsRecorder metrics = new MetricsRecorder();
+        metrics.registerMBean();
+        try {
+            metrics.claimChecked(10, true);
+            Object value = ManagementFactory.getPlatformMBeanServer().getAttribute(new ObjectName(MetricsRecorder.OBJECT_NAME), "Metrics");
+            assertTrue(value.toString().contains("staleClaims"));
+        } finally {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(MetricsRecorder.OBJECT_NAME));
+        }
+    }
+}
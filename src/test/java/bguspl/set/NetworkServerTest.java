@@ -0,0 +1,266 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NetworkServerTest {
+
+    private static final int TABLES = 4;
+
+    private Logger logger;
+    private Config config;
+    private GameHost host;
+    private NetworkServer server;
+
+    @BeforeEach
+    void setUp() {
+        logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        Properties properties = new Properties();
+        properties.setProperty("HumanPlayers", "2");
+        properties.setProperty("ComputerPlayers", "0");
+        properties.setProperty("TableDelaySeconds", "0");
+        properties.setProperty("EndGamePauseSeconds", "0");
+        config = new Config(logger, properties);
+        logger.setLevel(Level.OFF);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (server != null)
+            server.close();
+        if (host != null) {
+            host.terminate();
+            host.awaitTermination(30, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Records the state of a table as seen by a user interface, and the calls that set the countdown.
+     */
+    private static class RecordingUserInterface extends UserInterfaceHeadless {
+
+        final int[] cards;
+        final List<String> tokens = new ArrayList<>();
+        final List<Long> countdowns = new ArrayList<>();
+        int[] scores;
+
+        RecordingUserInterface(Config config) {
+            cards = new int[config.tableSize];
+            Arrays.fill(cards, -1);
+            scores = new int[config.players];
+        }
+
+        @Override
+        public void placeCard(int card, int slot) {
+            cards[slot] = card;
+        }
+
+        @Override
+        public void removeCard(int slot) {
+            cards[slot] = -1;
+        }
+
+        @Override
+        public void placeToken(int player, int slot) {
+            tokens.add(player + "@" + slot);
+        }
+
+        @Override
+        public void removeToken(int player, int slot) {
+            tokens.remove(player + "@" + slot);
+        }
+
+        @Override
+        public void setCountdown(long millies, boolean warn) {
+            countdowns.add(millies);
+        }
+
+        @Override
+        public void setScore(int player, int score) {
+            scores[player] = score;
+        }
+    }
+
+    @Test
+    void flush_SendsTheChangesInOneFrame() {
+        UserInterfaceNetwork ui = new UserInterfaceNetwork(config);
+        List<ByteBuffer> frames = new ArrayList<>();
+        ByteBuffer joined = ByteBuffer.allocate(3).put(NetworkProtocol.JOINED).putShort((short) 1);
+        ui.placeCard(7, 0);
+        ui.subscribe(frames::add, joined.flip());
+
+        ui.placeCard(5, 3);
+        ui.placeToken(1, 3);
+        ui.setCountdown(3000, false);
+        ui.setCountdown(2000, false);
+        ui.setScore(0, 4);
+        ui.flush();
+        ui.flush(); // nothing changed
+
+        assertEquals(2, frames.size());
+        RecordingUserInterface client = new RecordingUserInterface(config);
+        assertEquals(1, decode(frames.get(0), client));
+        assertEquals(7, client.cards[0]);
+        client.countdowns.clear();
+        assertEquals(-2, decode(frames.get(1), client));
+        assertEquals(5, client.cards[3]);
+        assertEquals(Arrays.asList("1@3"), client.tokens);
+        assertEquals(Arrays.asList(2000L), client.countdowns);
+        assertEquals(4, client.scores[0]);
+    }
+
+    private static int decode(ByteBuffer frame, UserInterface ui) {
+        assertEquals(frame.remaining() - NetworkProtocol.FRAME_HEADER_SIZE, frame.getInt());
+        return NetworkProtocol.decode(frame, ui);
+    }
+
+    /**
+     * A scripted remote player.
+     */
+    private class Client implements AutoCloseable {
+
+        final SocketChannel channel;
+        final RecordingUserInterface ui = new RecordingUserInterface(config);
+
+        Client() throws IOException {
+            channel = SocketChannel.open(new InetSocketAddress("localhost", server.port()));
+        }
+
+        void send(ByteBuffer message) throws IOException {
+            while (message.hasRemaining())
+                channel.write(message);
+        }
+
+        /**
+         * Reads one frame and applies it to the user interface.
+         */
+        int receive() throws IOException {
+            ByteBuffer header = ByteBuffer.allocate(NetworkProtocol.FRAME_HEADER_SIZE);
+            readFully(header);
+            ByteBuffer events = ByteBuffer.allocate(header.flip().getInt());
+            readFully(events);
+            return NetworkProtocol.decode(events.flip(), ui);
+        }
+
+        private void readFully(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining())
+                if (channel.read(buffer) < 0)
+                    throw new EOFException();
+        }
+
+        int join(int table, int seat) throws IOException {
+            send(NetworkProtocol.join(table, seat));
+            int joined;
+            do
+                joined = receive();
+            while (joined == -2);
+            return joined;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    private int[] startTables() throws IOException {
+        host = new GameHost(logger, config, TABLES);
+        server = new NetworkServer(logger, config, new InetSocketAddress("localhost", 0), 2);
+        int[] tables = new int[TABLES];
+        for (int i = 0; i < TABLES; i++) {
+            UserInterfaceNetwork ui = new UserInterfaceNetwork(config);
+            GameHost.Game game = host.start(ui, GameClock.SYSTEM);
+            server.addTable(game.id, ui, game::player);
+            tables[i] = game.id;
+        }
+        server.start();
+        return tables;
+    }
+
+    @Test
+    void keyPresses_PlaceTokensSeenByAllPlayersOfTheTable() throws IOException {
+        int[] tables = startTables();
+        List<Client> clients = new ArrayList<>();
+        try {
+            for (int table : tables)
+                for (int seat = 0; seat < config.players; seat++) {
+                    Client client = new Client();
+                    clients.add(client);
+                    assertEquals(seat, client.join(table, seat));
+                }
+
+            for (int i = 0; i < clients.size(); i++) {
+                Client client = clients.get(i);
+                int seat = i % config.players;
+                while (client.ui.cards[seat] < 0)
+                    client.receive();
+                client.send(NetworkProtocol.key(seat));
+            }
+            // every player sees its own token and the token of the other player of its table
+            for (int i = 0; i < clients.size(); i++) {
+                Client client = clients.get(i);
+                while (client.ui.tokens.size() < config.players)
+                    client.receive();
+                assertTrue(client.ui.tokens.contains("0@0"), client.ui.tokens.toString());
+                assertTrue(client.ui.tokens.contains("1@1"), client.ui.tokens.toString());
+            }
+        } finally {
+            for (Client client : clients)
+                client.close();
+        }
+    }
+
+    @Test
+    void join_RejectsTakenSeatsAndUnknownTables() throws IOException {
+        int[] tables = startTables();
+        try (Client first = new Client(); Client second = new Client(); Client third = new Client()) {
+            assertEquals(0, first.join(tables[0], 0));
+            assertEquals(-1, second.join(tables[0], 0));
+            assertEquals(-1, second.join(-1, 0));
+            assertEquals(-1, second.join(tables[0], config.players));
+
+            first.close();
+            // the seat is free again once the server sees the connection closed
+            int joined;
+            do
+                try (Client again = new Client()) {
+                    joined = again.join(tables[0], 0);
+                }
+            while (joined != 0);
+            assertEquals(1, third.join(tables[0], 1));
+        }
+    }
+
+    @Test
+    void join_RejectsComputerSeats() throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("HumanPlayers", "1");
+        properties.setProperty("ComputerPlayers", "1");
+        properties.setProperty("TableDelaySeconds", "0");
+        properties.setProperty("EndGamePauseSeconds", "0");
+        config = new Config(logger, properties);
+        int[] tables = startTables();
+        try (Client human = new Client(); Client computer = new Client()) {
+            assertEquals(-1, computer.join(tables[0], 1));
+            assertEquals(0, human.join(tables[0], 0));
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UtilImplTest {
+
+    private Config config;
+    private UtilImpl util;
+
+    @BeforeEach
+    void setUp() {
+        config = new Config(new MockLogger(), new Properties());
+        util = new UtilImpl(config);
+    }
+
+    private List<int[]> findSetsBruteForce(List<Integer> deck) {
+        List<int[]> sets = new ArrayList<>();
+        for (int i = 0; i < deck.size(); ++i)
+            for (int j = i + 1; j < deck.size(); ++j)
+                for (int k = j + 1; k < deck.size(); ++k) {
+                    int[] cards = IntStream.of(deck.get(i), deck.get(j), deck.get(k)).sorted().toArray();
+                    if (util.testSet(cards)) sets.add(cards);
+                }
+        return sets;
+    }
+
+    @Test
+    void thirdCard_CompletesLegalSet() {
+        for (int first = 0; first < config.deckSize; ++first)
+            for (int second = 0; second < config.deckSize; ++second) {
+                if (first == second) continue;
+                int third = util.thirdCard(first, second);
+                assertTrue(third != first && third != second);
+                assertTrue(util.testSet(new int[]{first, second, third}));
+            }
+    }
+
+    @Test
+    void testSet_KnownSetsAndNonSets() {
+        // features are the base featureSize digits of the card id
+        assertTrue(util.testSet(new int[]{0, 1, 2}));     // 0000, 0001, 0002
+        assertTrue(util.testSet(new int[]{0, 40, 80}));   // 0000, 1111, 2222
+        assertFalse(util.testSet(new int[]{0, 1, 4}));    // 0000, 0001, 0011
+        assertFalse(util.testSet(new int[]{5}));
+    }
+
+    @Test
+    void testSet_MatchesFeatureDefinition_FourValuedFeatures() {
+        Properties properties = new Properties();
+        properties.put("FeatureSize", "4");
+        properties.put("FeatureCount", "3");
+        Config config = new Config(new MockLogger(), properties);
+        UtilImpl util = new UtilImpl(config);
+        Random random = new Random(7);
+        for (int round = 0; round < 2000; ++round) {
+            int[] cards = random.ints(0, config.deckSize).distinct().limit(4).toArray();
+            int[][] features = util.cardsToFeatures(cards);
+            boolean expected = true;
+            for (int i = 0; i < config.featureCount; ++i) {
+                int feature = i;
+                long distinct = Arrays.stream(features).mapToInt(f -> f[feature]).distinct().count();
+                expected &= distinct == 1 || distinct == cards.length;
+            }
+            assertEquals(expected, util.testSet(cards));
+        }
+    }
+
+    @Test
+    void findSets_FullDeck() {
+        List<Integer> deck = IntStream.range(0, config.deckSize).boxed().collect(Collectors.toList());
+        assertEquals(1080, util.findSets(deck, Integer.MAX_VALUE).size());
+    }
+
+    @Test
+    void findSets_SameOrderAsCombinationEnumeration() {
+        Random random = new Random(42);
+        List<Integer> deck = IntStream.range(0, config.deckSize).boxed().collect(Collectors.toList());
+        for (int round = 0; round < 20; ++round) {
+            Collections.shuffle(deck, random);
+            List<Integer> cards = deck.subList(0, 12 + random.nextInt(20));
+            List<int[]> expected = findSetsBruteForce(cards);
+            List<int[]> actual = util.findSets(cards, Integer.MAX_VALUE);
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); ++i)
+                assertArrayEquals(expected.get(i), actual.get(i));
+        }
+    }
+
+    @Test
+    void findSets_StopsAtCount() {
+        List<Integer> deck = IntStream.range(0, config.deckSize).boxed().collect(Collectors.toList());
+        assertEquals(1, util.findSets(deck, 1).size());
+    }
+
+    /**
+     * Enumerates the combinations of featureSize cards of a deck in lexicographic order (of the positions in the deck).
+     */
+    private static void findSetsBruteForce(Util util, int featureSize, List<Integer> deck, int[] combination, int next, int from, List<int[]> sets) {
+        if (next == featureSize) {
+            int[] cards = Arrays.stream(combination).map(deck::get).sorted().toArray();
+            if (util.testSet(cards)) sets.add(cards);
+            return;
+        }
+        for (int i = from; i < deck.size(); ++i) {
+            combination[next] = i;
+            findSetsBruteForce(util, featureSize, deck, combination, next + 1, i + 1, sets);
+        }
+    }
+
+    @Test
+    void findSets_ParallelSameAsSequential_FourValuedFeatures() {
+        Properties properties = new Properties();
+        properties.put("FeatureSize", "4");
+        properties.put("FeatureCount", "3");
+        Config config = new Config(new MockLogger(), properties);
+        UtilImpl util = new UtilImpl(config);
+        List<Integer> deck = IntStream.range(0, config.deckSize).boxed().collect(Collectors.toList());
+        Collections.shuffle(deck, new Random(4));
+
+        // 635,376 combinations of 4 out of 64 cards, enough to be split between threads
+        List<int[]> expected = new ArrayList<>();
+        findSetsBruteForce(util, config.featureSize, deck, new int[config.featureSize], 0, 0, expected);
+        List<int[]> actual = util.findSets(deck, Integer.MAX_VALUE);
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); ++i)
+            assertArrayEquals(expected.get(i), actual.get(i));
+
+        List<int[]> some = util.findSets(deck, 5);
+        assertEquals(5, some.size());
+        for (int[] set : some)
+            assertTrue(util.testSet(set));
+    }
+
+    @Test
+    void findSets_SameAsBruteForce_FiveValuedFeatures() {
+        Properties properties = new Properties();
+        properties.put("FeatureSize", "5");
+        properties.put("FeatureCount", "3");
+        Config config = new Config(new MockLogger(), properties);
+        UtilImpl util = new UtilImpl(config);
+        List<Integer> deck = IntStream.range(0, config.deckSize).boxed().collect(Collectors.toList());
+        Collections.shuffle(deck, new Random(5));
+        deck = deck.subList(0, 40);
+
+        // 91,390 combinations of 4 out of 40 cards to complete, enough to be split between threads
+        List<int[]> expected = new ArrayList<>();
+        findSetsBruteForce(util, config.featureSize, deck, new int[config.featureSize], 0, 0, expected);
+        List<int[]> actual = util.findSets(deck, Integer.MAX_VALUE);
+        assertFalse(expected.isEmpty());
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); ++i)
+            assertArrayEquals(expected.get(i), actual.get(i));
+    }
+
+    @Test
+    void findSets_ParallelSameAsSequential_TwoValuedFeatures() {
+        Properties properties = new Properties();
+        properties.put("FeatureSize", "2");
+        properties.put("FeatureCount", "8");
+        Config config = new Config(new MockLogger(), properties);
+        UtilImpl util = new UtilImpl(config);
+        List<Integer> deck = IntStream.range(0, config.deckSize).boxed().collect(Collectors.toList());
+        Collections.shuffle(deck, new Random(2));
+
+        // 32,640 combinations of 2 out of 256 cards (found by enumerating the combinations), enough to be split
+        List<int[]> expected = new ArrayList<>();
+        findSetsBruteForce(util, config.featureSize, deck, new int[config.featureSize], 0, 0, expected);
+        List<int[]> actual = util.findSets(deck, Integer.MAX_VALUE);
+        assertFalse(expected.isEmpty());
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); ++i)
+            assertArrayEquals(expected.get(i), actual.get(i));
+    }
+
+    @Test
+    void findSets_ParallelSameAsSequential_ThreeValuedFeatures() {
+        Properties properties = new Properties();
+        properties.put("FeatureCount", "7");
+        Config config = new Config(new MockLogger(), properties);
+        UtilImpl util = new UtilImpl(config);
+        List<Integer> deck = IntStream.range(0, config.deckSize).boxed().collect(Collectors.toList());
+        Collections.shuffle(deck, new Random(3));
+
+        // 2,390,391 pairs of 2187 cards, enough to be split between threads; the sequential search goes over the
+        // pairs in order and keeps the sets whose third card comes after both
+        int[] position = new int[config.deckSize];
+        for (int p = 0; p < deck.size(); ++p)
+            position[deck.get(p)] = p;
+        List<int[]> expected = new ArrayList<>();
+        for (int i = 0; i < deck.size(); ++i)
+            for (int j = i + 1; j < deck.size(); ++j) {
+                int third = util.thirdCard(deck.get(i), deck.get(j));
+                if (position[third] > j) {
+                    int[] set = {deck.get(i), deck.get(j), third};
+                    Arrays.sort(set);
+                    expected.add(set);
+                }
+            }
+        List<int[]> actual = util.findSets(deck, Integer.MAX_VALUE);
+        assertEquals(config.deckSize * (config.deckSize - 1) / 6, expected.size());
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); ++i)
+            assertArrayEquals(expected.get(i), actual.get(i));
+
+        List<int[]> some = util.findSets(deck, 5);
+        assertEquals(5, some.size());
+        for (int[] set : some)
+            assertTrue(util.testSet(set));
+    }
+
+    static class MockLogger extends Logger {
+        protected MockLogger() {
+            super("", null);
+        }
+    }
+}
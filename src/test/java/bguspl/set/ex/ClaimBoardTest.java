@@ -0,0 +1,49 @@
+package bguspl.set.ex;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClaimBoardTest {
+
+    @Test
+    void take_EveryClaimOnceInTurn() {
+        ClaimBoard claims = new ClaimBoard(4, 3, false);
+        assertTrue(claims.isEmpty());
+        assertEquals(-1, claims.take());
+
+        assertEquals(1, claims.post(2, new int[]{1, 5, 7}, new int[]{10, 50, 70}));
+        assertEquals(2, claims.post(0, new int[]{0, 2}, new int[]{3, 4}));
+        assertFalse(claims.isEmpty());
+
+        assertEquals(0, claims.take());
+        assertEquals(2, claims.take());
+        assertEquals(-1, claims.take());
+        assertTrue(claims.isEmpty());
+
+        // the scan starts after the player taken last
+        claims.post(1, new int[]{0, 1, 2}, new int[]{0, 0, 0});
+        claims.post(3, new int[]{0, 1, 2}, new int[]{0, 0, 0});
+        assertEquals(3, claims.take());
+        assertEquals(1, claims.take());
+    }
+
+    @Test
+    void slots_AsPosted() {
+        ClaimBoard claims = new ClaimBoard(2, 3, true);
+        claims.post(1, new int[]{1, 5, 7}, new int[]{10, 50, 70});
+        claims.post(0, new int[]{4}, new int[]{8});
+
+        int[] slots = new int[3];
+        assertEquals(3, claims.slots(1, slots));
+        assertArrayEquals(new int[]{1, 5, 7}, slots);
+        assertEquals(50, claims.version(1, 1));
+        assertTrue(claims.nanos(1) != 0);
+        assertEquals(1, claims.slots(0, slots));
+        assertEquals(4, slots[0]);
+        assertEquals(8, claims.version(0, 0));
+    }
+}
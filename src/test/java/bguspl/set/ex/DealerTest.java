@@ -0,0 +1,152 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.UserInterface;
+import bguspl.set.UserInterfaceHeadless;
+import bguspl.set.Util;
+import bguspl.set.UtilImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+@ExtendWith(MockitoExtension.class)
+class DealerTest {
+
+    Dealer dealer;
+    @Mock
+    Util util;
+    @Mock
+    private UserInterface ui;
+    @Mock
+    private Table table;
+    @Mock
+    private Logger logger;
+
+    @BeforeEach
+    void setUp() {
+        // purposely do not find the configuration files (use defaults here).
+        Env env = new Env(logger, new Config(logger, (String) null), ui, util);
+        dealer = new Dealer(env, table, new Player[0]);
+    }
+
+    private Thread startWaitingPlayer(AtomicBoolean released) {
+        Thread player = new Thread(() -> {
+            try {
+                dealer.awaitShuffle();
+                released.set(true);
+            } catch (InterruptedException ignored) {}
+        });
+        player.start();
+        return player;
+    }
+
+    @Test
+    void awaitShuffle_PlayerDoesNotSpinWhileShuffling() throws InterruptedException {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadCpuTimeSupported());
+        threads.setThreadCpuTimeEnabled(true);
+
+        AtomicBoolean released = new AtomicBoolean(false);
+        dealer.startShuffling();
+        Thread player = startWaitingPlayer(released);
+        Thread.sleep(500);
+
+        assertEquals(Thread.State.WAITING, player.getState());
+        long cpuNanos = threads.getThreadCpuTime(player.getId());
+        assertTrue(cpuNanos < 50_000_000L, "player used " + cpuNanos / 1_000_000L + " ms of cpu while waiting");
+        assertFalse(released.get());
+
+        dealer.finishShuffling();
+        player.join(1000);
+        assertFalse(player.isAlive());
+        assertTrue(released.get());
+    }
+
+    @Test
+    void awaitShuffle_ReleasesAllPlayersAtOnce() throws InterruptedException {
+        dealer.startShuffling();
+        AtomicBoolean[] released = new AtomicBoolean[4];
+        Thread[] players = new Thread[released.length];
+        for (int i = 0; i < players.length; ++i) {
+            released[i] = new AtomicBoolean(false);
+            players[i] = startWaitingPlayer(released[i]);
+        }
+
+        dealer.finishShuffling();
+        for (int i = 0; i < players.length; ++i) {
+            players[i].join(1000);
+            assertTrue(released[i].get());
+        }
+    }
+
+    @Test
+    void awaitShuffle_ReturnsImmediatelyWhenNotShuffling() throws InterruptedException {
+        dealer.finishShuffling();
+        AtomicBoolean released = new AtomicBoolean(false);
+        startWaitingPlayer(released).join(1000);
+        assertTrue(released.get());
+    }
+
+    @Test
+    void awaitShuffle_InterruptedForTermination() throws InterruptedException {
+        dealer.startShuffling();
+        AtomicBoolean released = new AtomicBoolean(false);
+        Thread player = startWaitingPlayer(released);
+        player.interrupt();
+        player.join(1000);
+        assertFalse(player.isAlive());
+        assertFalse(released.get());
+    }
+
+    private static Env realEnv(boolean smartDealing) {
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        Properties properties = new Properties();
+        properties.setProperty("SmartDealing", Boolean.toString(smartDealing));
+        properties.setProperty("TableDelaySeconds", "0");
+        properties.setProperty("Hints", "False");
+        Config config = new Config(logger, properties);
+        return new Env(logger, config, new UserInterfaceHeadless(), new UtilImpl(config));
+    }
+
+    @Test
+    void smartDealing_AlwaysDealsASet() {
+        Env env = realEnv(true);
+        for (long seed = 0; seed < 100; seed++) {
+            Table table = new Table(env);
+            Dealer smartDealer = new Dealer(env, table, new Player[0], seed);
+            for (int round = 0; round < 5; round++) {
+                smartDealer.dealRound();
+                assertEquals(env.config.tableSize, table.countCards());
+                assertTrue(table.hasSet(), "seed " + seed + " round " + round);
+                smartDealer.removeAllCardsFromTable();
+            }
+        }
+    }
+
+    @Test
+    void randomDealing_SometimesDealsNoSet() {
+        Env env = realEnv(false);
+        boolean deadBoard = false;
+        for (long seed = 0; seed < 200 && !deadBoard; seed++) {
+            Table table = new Table(env);
+            new Dealer(env, table, new Player[0], seed).dealRound();
+            deadBoard = !table.hasSet();
+        }
+        assertTrue(deadBoard);
+    }
+}
@@ -0,0 +1,56 @@
+package bguspl.set.ex;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeckTest {
+
+    @Test
+    void draw_EveryCardOnce() {
+        Deck deck = new Deck(81);
+        Random random = new Random(3);
+        BitSet drawn = new BitSet();
+        for (int i = 0; i < 81; i++) {
+            int card = deck.draw(random);
+            assertFalse(drawn.get(card));
+            assertFalse(deck.contains(card));
+            drawn.set(card);
+        }
+        assertEquals(81, drawn.cardinality());
+        assertTrue(deck.isEmpty());
+        assertEquals(-1, deck.draw(random));
+    }
+
+    @Test
+    void addAndRemove_MatchContains() {
+        Deck deck = new Deck(130);
+        Random random = new Random(7);
+        boolean[] expected = new boolean[130];
+        Arrays.fill(expected, true);
+        int size = 130;
+        for (int step = 0; step < 1000; step++) {
+            int card = random.nextInt(130);
+            if (random.nextBoolean()) {
+                if (!expected[card]) size++;
+                deck.add(card);
+                expected[card] = true;
+            } else {
+                if (expected[card]) size--;
+                deck.remove(card);
+                expected[card] = false;
+            }
+            assertEquals(size, deck.size());
+            for (int c = 0; c < 130; c++)
+                assertEquals(expected[c], deck.contains(c));
+            for (int i = 0; i < deck.size(); i++)
+                assertTrue(expected[deck.get(i)]);
+        }
+    }
+}
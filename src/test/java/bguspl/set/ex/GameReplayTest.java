@@ -0,0 +1,109 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.GameClock;
+import bguspl.set.JournalWriter;
+import bguspl.set.ThreadLogger;
+import bguspl.set.UserInterfaceHeadless;
+import bguspl.set.UtilImpl;
+import bguspl.set.VirtualClock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class GameReplayTest {
+
+    private Logger logger;
+    private Config config;
+
+    @BeforeEach
+    void setUp() {
+        logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        Properties properties = new Properties();
+        properties.setProperty("Simulation", "True");
+        properties.setProperty("HumanPlayers", "0");
+        properties.setProperty("ComputerPlayers", "4");
+        properties.setProperty("TurnTimeoutWarningSeconds", "5");
+        config = new Config(logger, properties);
+        logger.setLevel(Level.OFF);
+    }
+
+    private Env env(GameClock clock, JournalWriter journal) {
+        return new Env(logger, config, new UserInterfaceHeadless(), new UtilImpl(config), clock, journal);
+    }
+
+    /**
+     * Plays a game of computer players and records it.
+     */
+    private byte[] recordGame(int[] scores) throws IOException, InterruptedException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        VirtualClock clock = new VirtualClock(config.simulationSpeedup);
+        JournalWriter journal = new JournalWriter(bytes, config, clock);
+        Env env = env(clock, journal);
+        Table table = new Table(env);
+        Player[] players = new Player[config.players];
+        Dealer dealer = new Dealer(env, table, players);
+        for (int i = 0; i < players.length; i++)
+            players[i] = new Player(env, dealer, table, i, false);
+
+        ThreadLogger dealerThread = new ThreadLogger(dealer, "dealer", logger);
+        dealerThread.startWithLog();
+        dealerThread.joinWithLog();
+        journal.close();
+
+        for (int i = 0; i < players.length; i++)
+            scores[i] = players[i].score();
+        return bytes.toByteArray();
+    }
+
+    private int[] replay(byte[] journal) throws IOException {
+        return new GameReplay(new Env(logger, config, new UserInterfaceHeadless(), new UtilImpl(config)), new ByteArrayInputStream(journal)).run();
+    }
+
+    @Test
+    void replay_ReproducesRecordedGames() throws IOException, InterruptedException {
+        for (int game = 0; game < 3; game++) {
+            int[] scores = new int[config.players];
+            byte[] journal = recordGame(scores);
+            assertArrayEquals(scores, replay(journal), "game " + game);
+        }
+    }
+
+    @Test
+    void replay_FailsWhenDealerDiverges() throws IOException {
+        // a round in which the dealer placed no cards
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        JournalWriter journal = new JournalWriter(bytes, config, GameClock.SYSTEM);
+        journal.gameStarted(42);
+        journal.roundStarted();
+        journal.roundEnded();
+        journal.gameEnded();
+        journal.close();
+
+        assertThrows(IllegalStateException.class, () -> replay(bytes.toByteArray()));
+    }
+
+    @Test
+    void replay_RejectsJournalOfDifferentConfiguration() throws IOException, InterruptedException {
+        byte[] journal = recordGame(new int[config.players]);
+        Properties properties = new Properties();
+        properties.setProperty("HumanPlayers", "0");
+        properties.setProperty("ComputerPlayers", "2");
+        config = new Config(logger, properties);
+
+        assertThrows(IOException.class, () -> replay(journal));
+        assertThrows(IOException.class, () -> replay(Arrays.copyOf(journal, 2)));
+    }
+}
@@ -0,0 +1,75 @@
+package bguspl.set.ex;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KeyPressQueueTest {
+
+    @Test
+    void offer_DropsWhenFull() throws InterruptedException {
+        KeyPressQueue queue = new KeyPressQueue(3);
+        assertTrue(queue.offer(4));
+        assertTrue(queue.offer(7));
+        assertTrue(queue.offer(1));
+        assertFalse(queue.offer(2));
+        assertEquals(3, queue.size());
+        assertEquals(1, queue.dropped());
+
+        assertEquals(4, queue.take());
+        assertTrue(queue.offer(2));
+        assertEquals(7, queue.take());
+        assertEquals(1, queue.take());
+        assertEquals(2, queue.take());
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    void take_WaitsForKeyPress() throws InterruptedException {
+        KeyPressQueue queue = new KeyPressQueue(3);
+        AtomicInteger taken = new AtomicInteger(-1);
+        Thread consumer = new Thread(() -> {
+            try {
+                taken.set(queue.take());
+            } catch (InterruptedException ignored) {}
+        });
+        consumer.start();
+        Thread.sleep(100);
+        assertEquals(-1, taken.get());
+
+        queue.offer(5);
+        consumer.join(1000);
+        assertFalse(consumer.isAlive());
+        assertEquals(5, taken.get());
+    }
+
+    @Test
+    void take_Interrupted() {
+        KeyPressQueue queue = new KeyPressQueue(3);
+        Thread.currentThread().interrupt();
+        assertThrows(InterruptedException.class, queue::take);
+    }
+
+    @Test
+    void put_KeepsOrderOfManyKeyPresses() throws InterruptedException {
+        KeyPressQueue queue = new KeyPressQueue(3);
+        int keyPresses = 100_000;
+        Thread producer = new Thread(() -> {
+            try {
+                for (int i = 0; i < keyPresses; i++)
+                    queue.put(i % 12);
+            } catch (InterruptedException ignored) {}
+        });
+        producer.start();
+        for (int i = 0; i < keyPresses; i++)
+            assertEquals(i % 12, queue.take());
+        producer.join(1000);
+        assertFalse(producer.isAlive());
+        assertEquals(0, queue.dropped());
+    }
+}
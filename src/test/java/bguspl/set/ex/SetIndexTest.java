@@ -0,0 +1,99 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.UtilImpl;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SetIndexTest {
+
+    private static Env env(int featureSize, int featureCount) {
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        Properties properties = new Properties();
+        properties.setProperty("FeatureSize", Integer.toString(featureSize));
+        properties.setProperty("FeatureCount", Integer.toString(featureCount));
+        Config config = new Config(logger, properties);
+        return new Env(logger, config, null, new UtilImpl(config));
+    }
+
+    private static long bruteForceCount(Env env, List<Integer> cards) {
+        return env.util.findSets(cards, Integer.MAX_VALUE).size();
+    }
+
+    @Test
+    void countSets_FullDeck() {
+        Env env = env(3, 4);
+        SetIndex index = new SetIndex(env);
+        for (int card = 0; card < env.config.deckSize; card++)
+            index.add(card);
+        assertEquals(81, index.size());
+        assertEquals(1080, index.countSets());
+        assertTrue(index.hasSet());
+    }
+
+    @Test
+    void countSets_MatchesSearchAfterEveryChange() {
+        Env env = env(3, 4);
+        Random random = new Random(7);
+        SetIndex index = new SetIndex(env);
+        List<Integer> cards = new ArrayList<>();
+        for (int step = 0; step < 500; step++) {
+            int card = random.nextInt(env.config.deckSize);
+            if (cards.contains(card)) {
+                index.remove(card);
+                cards.remove(Integer.valueOf(card));
+            } else {
+                index.add(card);
+                cards.add(card);
+            }
+            assertEquals(bruteForceCount(env, cards), index.countSets(), "step " + step);
+            assertEquals(cards.size(), index.size());
+        }
+    }
+
+    @Test
+    void addAndRemove_AreIdempotent() {
+        Env env = env(3, 4);
+        SetIndex index = new SetIndex(env);
+        int third = env.util.thirdCard(0, 1);
+        index.add(0);
+        index.add(1);
+        index.add(third);
+        index.add(third);
+        assertEquals(3, index.size());
+        assertEquals(1, index.countSets());
+
+        index.remove(third);
+        index.remove(third);
+        assertEquals(2, index.size());
+        assertFalse(index.hasSet());
+        assertFalse(index.contains(third));
+    }
+
+    @Test
+    void countSets_WithFourValuedFeatures() {
+        Env env = env(4, 3);
+        SetIndex index = new SetIndex(env);
+        List<Integer> cards = new ArrayList<>();
+        for (int card = 0; card < env.config.deckSize; card++)
+            cards.add(card);
+        Collections.shuffle(cards, new Random(3));
+        cards = cards.subList(0, 20);
+        for (int card : cards)
+            index.add(card);
+        assertEquals(bruteForceCount(env, cards), index.countSets());
+        assertEquals(!env.util.findSets(cards, 1).isEmpty(), index.hasSet());
+    }
+}
@@ -0,0 +1,79 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.UserInterfaceHeadless;
+import bguspl.set.UtilImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SolverStrategyTest {
+
+    private Table table;
+    private SolverStrategy strategy;
+
+    @BeforeEach
+    void setUp() {
+        Properties properties = new Properties();
+        properties.put("TableDelaySeconds", "0");
+        properties.put("ComputerPlayerDelaySeconds", "0.1");
+        properties.put("ComputerReactionSeconds", "0.5");
+        properties.put("ComputerReactionSpread", "0");
+        Logger logger = Logger.getAnonymousLogger();
+        Config config = new Config(logger, properties);
+        Env env = new Env(logger, config, new UserInterfaceHeadless(), new UtilImpl(config));
+        table = new Table(env);
+        strategy = new SolverStrategy(env);
+    }
+
+    @Test
+    void nextKeyPress_PressesTheSetAfterReactionTime() {
+        // cards 0, 1 and 2 (0000, 0001, 0002 in base 3) are the only set among these cards
+        table.placeCard(10, 3);
+        table.placeCard(2, 9);
+        table.placeCard(0, 5);
+        table.placeCard(1, 7);
+        table.placeToken(0, 3);
+        table.placeToken(0, 7);
+
+        assertEquals(-1, strategy.nextKeyPress(table, 0));
+        assertEquals(500, strategy.delayMillis());
+        // the token that is not on the set is removed first
+        assertEquals(3, strategy.nextKeyPress(table, 0));
+        assertEquals(100, strategy.delayMillis());
+        assertEquals(5, strategy.nextKeyPress(table, 0));
+        assertEquals(9, strategy.nextKeyPress(table, 0));
+        assertEquals(-1, strategy.nextKeyPress(table, 0));
+    }
+
+    @Test
+    void nextKeyPress_NothingWithoutSet() {
+        table.placeCard(10, 3);
+        table.placeCard(0, 5);
+        table.placeCard(1, 7);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(-1, strategy.nextKeyPress(table, 0));
+            assertEquals(500, strategy.delayMillis());
+        }
+    }
+
+    @Test
+    void nextKeyPress_GivesUpWhenCardChanges() {
+        table.placeCard(0, 5);
+        table.placeCard(1, 7);
+        table.placeCard(2, 9);
+        assertEquals(-1, strategy.nextKeyPress(table, 0));
+        assertEquals(5, strategy.nextKeyPress(table, 0));
+
+        table.removeCard(7);
+        table.placeCard(10, 7);
+        assertEquals(-1, strategy.nextKeyPress(table, 0));
+        assertEquals(500, strategy.delayMillis());
+    }
+}
@@ -7,17 +7,22 @@ import bguspl.set.Util;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Properties;
 import java.util.logging.Logger;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class TableTest {
 
     Table table;
-    private Integer[] slotToCard;
-    private Integer[] cardToSlot;
+    private int[] slotToCard;
+    private int[] cardToSlot;
 
     @BeforeEach
     void setUp() {
@@ -32,8 +37,10 @@ class TableTest {
         properties.put("PlayerKeys2", "85,73,79,80");
         MockLogger logger = new MockLogger();
         Config config = new Config(logger, properties);
-        slotToCard = new Integer[config.tableSize];
-        cardToSlot = new Integer[config.deckSize];
+        slotToCard = new int[config.tableSize];
+        cardToSlot = new int[config.deckSize];
+        Arrays.fill(slotToCard, Table.EMPTY);
+        Arrays.fill(cardToSlot, Table.EMPTY);
 
         Env env = new Env(logger, config, new MockUserInterface(), new MockUtil());
         table = new Table(env, slotToCard, cardToSlot);
@@ -58,8 +65,8 @@ class TableTest {
     private void placeSomeCardsAndAssert() throws InterruptedException {
         table.placeCard(8, 2);
 
-        assertEquals(8, (int) slotToCard[2]);
-        assertEquals(2, (int) cardToSlot[8]);
+        assertEquals(8, slotToCard[2]);
+        assertEquals(2, cardToSlot[8]);
     }
 
     @Test
@@ -95,6 +102,104 @@ class TableTest {
         placeSomeCardsAndAssert();
     }
 
+    @Test
+    void placeToken_OnlyOnCards() {
+        fillSomeSlots();
+        assertTrue(table.placeToken(0, 1));
+        assertFalse(table.placeToken(0, 1));
+        assertFalse(table.placeToken(0, 0));
+        assertTrue(table.hasToken(0, 1));
+        assertFalse(table.hasToken(1, 1));
+        assertEquals(1, table.countTokens(0));
+    }
+
+    @Test
+    void getTokens_AscendingSlots() {
+        fillAllSlots();
+        table.placeToken(1, 3);
+        table.placeToken(1, 0);
+        table.placeToken(1, 2);
+        assertArrayEquals(new int[]{0, 2, 3}, table.getTokens(1));
+        assertArrayEquals(new int[0], table.getTokens(0));
+    }
+
+    @Test
+    void removeToken_OnlyExistingToken() {
+        fillAllSlots();
+        table.placeToken(0, 2);
+        assertTrue(table.removeToken(0, 2));
+        assertFalse(table.removeToken(0, 2));
+        assertEquals(0, table.countTokens(0));
+    }
+
+    @Test
+    void removeCard_RemovesTokensOfAllPlayers() {
+        fillAllSlots();
+        table.placeToken(0, 2);
+        table.placeToken(1, 2);
+        table.placeToken(1, 3);
+        table.removeCard(2);
+        assertEquals(Table.EMPTY, slotToCard[2]);
+        assertEquals(Table.EMPTY, cardToSlot[2]);
+        assertFalse(table.hasToken(0, 2));
+        assertFalse(table.hasToken(1, 2));
+        assertTrue(table.hasToken(1, 3));
+    }
+
+    @Test
+    void getCardsOfPlayer_CardsWithTokens() {
+        fillAllSlots();
+        table.placeToken(0, 3);
+        table.placeToken(0, 1);
+        assertArrayEquals(new int[]{1, 3, 0}, table.getCardsOfPlayer(0));
+        assertNull(table.getCardsOfPlayer(1));
+    }
+
+    @Test
+    void version_ChangesWithTheCard() {
+        fillAllSlots();
+        int version = table.version(2);
+        table.placeToken(0, 2);
+        assertEquals(version, table.version(2));
+        table.removeCard(2);
+        assertTrue(table.version(2) > version);
+        version = table.version(2);
+        table.placeCard(8, 2);
+        assertTrue(table.version(2) > version);
+    }
+
+    @Test
+    void versions_OnlyOfSlotsWithTokens() {
+        fillAllSlots();
+        table.placeToken(0, 1);
+        table.placeToken(0, 2);
+        table.placeToken(0, 3);
+        int[] slots = table.getTokens(0);
+        table.removeCard(2);
+        assertArrayEquals(new int[]{table.version(1), -1, table.version(3)}, table.versions(0, slots));
+    }
+
+    @Test
+    void placeToken_NoTokenOutlivesItsCard() throws InterruptedException {
+        fillAllSlots();
+        Thread[] players = new Thread[2];
+        for (int i = 0; i < players.length; i++) {
+            int player = i;
+            players[i] = new Thread(() -> {
+                for (int round = 0; round < 10_000; round++)
+                    table.placeToken(player, round % slotToCard.length);
+            });
+            players[i].start();
+        }
+        for (int slot = 0; slot < slotToCard.length; slot++)
+            table.removeCard(slot);
+        for (Thread player : players)
+            player.join();
+
+        assertEquals(0, table.countTokens(0));
+        assertEquals(0, table.countTokens(1));
+    }
+
     static class MockUserInterface implements UserInterface {
         @Override
         public void dispose() {}
@@ -143,6 +248,11 @@ class TableTest {
             return null;
         }
 
+        @Override
+        public int thirdCard(int first, int second) {
+            return -1;
+        }
+
         @Override
         public void spin() {}
     }